@@ -0,0 +1,92 @@
+package com.example.print.benchmark;
+
+import com.example.print.qr.QrCodeGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import com.openhtmltopdf.util.XRLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+final class BenchmarkFixtures {
+
+    static final String QR_URL = "https://acme-gmbh.de/doc/A-2026-001";
+
+    private static final String BODY_SENTENCE =
+            "Sehr geehrter Herr Müller, hiermit möchten wir Sie über wichtige Änderungen informieren. ";
+    private static final String MINIMAL_PARAGRAPH = "<p>Address: Königstraße 42, München</p>\n";
+
+    private BenchmarkFixtures() {
+    }
+
+    static {
+        XRLog.setLoggingEnabled(false);
+    }
+
+    static String baseUri(String templateName) {
+        String folder = "test-minimal".equals(templateName) ? "templates/" : "";
+        return BenchmarkFixtures.class.getClassLoader().getResource(folder).toExternalForm();
+    }
+
+    static Map<String, Object> model(String templateName, int payloadSize, String qrCodeDataUri) {
+        String body = BODY_SENTENCE.repeat(payloadSize);
+        Map<String, Object> model = new HashMap<>();
+        switch (templateName) {
+            case "template-a" -> {
+                model.put("recipientName", "Hans Müller");
+                model.put("recipientStreet", "Königstraße 42");
+                model.put("recipientCity", "80331 München");
+                model.put("date", "18. Februar 2026");
+                model.put("subject", "Betreff: Wichtige Mitteilung");
+                model.put("bodyText", body);
+                model.put("showNotice", true);
+                model.put("noticeText", "Hinweis: Bitte beachten Sie die beigefügten Unterlagen.");
+                model.put("qrCodeDataUri", qrCodeDataUri);
+                model.put("senderName", "Dr. Anna Schmidt");
+                model.put("termsText", "Es gelten die Allgemeinen Geschäftsbedingungen der ACME GmbH.");
+                model.put("showDisclaimer", true);
+                model.put("disclaimerText", "Haftungsausschluss: Dieses Dokument dient ausschließlich zu Informationszwecken.");
+                model.put("contactInfo", "Kontakt: info@acme-gmbh.de | Tel: +49 89 123456-0");
+            }
+            case "template-b", "template-b-cached" -> {
+                model.put("title", "Produktinformation");
+                model.put("subtitle", "Premium Dienstleistungspaket");
+                model.put("productName", "Premium Dienstleistungspaket");
+                model.put("productDescription", body);
+                model.put("price", "EUR 2.499,00 zzgl. MwSt.");
+                model.put("availability", "Sofort verfügbar");
+                model.put("contactPerson", "Thomas Müller");
+                model.put("phone", "+49 89 123456-10");
+                model.put("email", "vertrieb@acme-gmbh.de");
+                model.put("companyAddress", "ACME GmbH, Innovationsweg 10, 80339 München");
+                model.put("showSpecialOffer", true);
+                model.put("specialOfferText", "Sonderangebot: 15% Rabatt bei Bestellung bis zum 31.03.2026!");
+                model.put("footerText", "Alle Preise verstehen sich zzgl. der gesetzlichen Mehrwertsteuer.");
+            }
+            default -> {
+                // test-minimal is static XHTML without Thymeleaf variables
+            }
+        }
+        return model;
+    }
+
+    static String html(ThymeleafRenderer renderer, String templateName, int payloadSize) {
+        if ("test-minimal".equals(templateName)) {
+            String html = readTemplate(templateName);
+            return html.replace("</body>", MINIMAL_PARAGRAPH.repeat(payloadSize) + "</body>");
+        }
+        String qrCodeDataUri = QrCodeGenerator.generateDataUri(QR_URL, 300);
+        return renderer.render(templateName, model(templateName, payloadSize, qrCodeDataUri));
+    }
+
+    private static String readTemplate(String templateName) {
+        try (InputStream is = BenchmarkFixtures.class.getClassLoader()
+                .getResourceAsStream("templates/" + templateName + ".html")) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read template " + templateName, e);
+        }
+    }
+}
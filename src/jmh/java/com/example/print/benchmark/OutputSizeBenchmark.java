@@ -0,0 +1,99 @@
+package com.example.print.benchmark;
+
+import com.example.print.pdf.FontRegistry;
+import com.example.print.pdf.MemoryPolicy;
+import com.example.print.pdf.OutputOptimizer;
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.pdf.ResourceCache;
+import com.example.print.qr.QrCodeGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes and time per document for each {@link OutputOptimizer} and font hinting combination; the source of the
+ * "Output size" table in the README. The size of every combination is printed as an {@code # Output size} line
+ * at the end of its trial. {@code print-run} is one PDF with ten template-a letters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputSizeBenchmark {
+
+    private static final int PRINT_RUN_LETTERS = 10;
+
+    @Param({"template-a", "template-b", "print-run"})
+    public String document;
+
+    @Param({"classic", "standard", "deduplicating", "withoutHinting", "both"})
+    public String output;
+
+    private PdfGenerator generator;
+    private List<String> html;
+    private String baseUri;
+    private int size;
+
+    @Setup
+    public void setUp() {
+        FontRegistry fonts = output.equals("withoutHinting") || output.equals("both")
+                ? FontRegistry.withDefaultFont().withoutHinting()
+                : FontRegistry.withDefaultFont();
+        OutputOptimizer optimizer = switch (output) {
+            case "classic" -> new OutputOptimizer(false, false);
+            case "deduplicating", "both" -> OutputOptimizer.deduplicating();
+            default -> OutputOptimizer.standard();
+        };
+        generator = new PdfGenerator(fonts, ResourceCache.defaultCache(), null, MemoryPolicy.inMemory(), optimizer);
+        html = html(new ThymeleafRenderer());
+        baseUri = BenchmarkFixtures.baseUri(document.equals("print-run") ? "template-a" : document);
+        size = generate().length;
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%n# Output size: %s, %s: %d bytes%n", document, output, size);
+    }
+
+    @Benchmark
+    public byte[] generate() {
+        if (html.size() == 1) {
+            return generator.generatePdf(html.getFirst(), baseUri);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generator.generatePrintRun(html.iterator(), baseUri, os);
+        return os.toByteArray();
+    }
+
+    private List<String> html(ThymeleafRenderer renderer) {
+        if (!document.equals("print-run")) {
+            return List.of(BenchmarkFixtures.html(renderer, document, 1));
+        }
+        String qrCodeDataUri = QrCodeGenerator.generateDataUri(BenchmarkFixtures.QR_URL, 300);
+        List<String> letters = new ArrayList<>();
+        for (int i = 0; i < PRINT_RUN_LETTERS; i++) {
+            Map<String, Object> model = BenchmarkFixtures.model("template-a", 1, qrCodeDataUri);
+            model.put("recipientName", "Kunde " + i);
+            letters.add(renderer.render("template-a", model));
+        }
+        return letters;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.print.benchmark;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfGeneratorBenchmark {
+
+    @Param({"template-a", "template-b", "test-minimal"})
+    public String template;
+
+    @Param({"1", "20", "200"})
+    public int payloadSize;
+
+    private PdfGenerator generator;
+    private String html;
+    private String baseUri;
+
+    @Setup
+    public void setUp() {
+        generator = new PdfGenerator();
+        html = BenchmarkFixtures.html(new ThymeleafRenderer(), template, payloadSize);
+        baseUri = BenchmarkFixtures.baseUri(template);
+    }
+
+    @Benchmark
+    public byte[] generatePdf() {
+        return generator.generatePdf(html, baseUri);
+    }
+}
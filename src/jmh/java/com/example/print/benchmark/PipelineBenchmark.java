@@ -0,0 +1,67 @@
+package com.example.print.benchmark;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.qr.QrCodeGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR code, Thymeleaf render and PDF generation for one letter, as the integration tests do it. Each letter encodes
+ * a different URL, as real letters do, so the QR code cache never hits and every call pays for the encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"template-a", "template-b"})
+    public String template;
+
+    @Param({"1", "20", "200"})
+    public int payloadSize;
+
+    private ThymeleafRenderer renderer;
+    private PdfGenerator generator;
+    private String baseUri;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        renderer = new ThymeleafRenderer();
+        generator = new PdfGenerator();
+        baseUri = BenchmarkFixtures.baseUri(template);
+    }
+
+    @Benchmark
+    public byte[] fullPipeline() {
+        String qrCodeDataUri = QrCodeGenerator.generateDataUri(BenchmarkFixtures.QR_URL + "/" + sequence++, 300);
+        Map<String, Object> model = BenchmarkFixtures.model(template, payloadSize, qrCodeDataUri);
+        String html = renderer.render(template, model);
+        return generator.generatePdf(html, baseUri);
+    }
+
+    @Benchmark
+    public byte[] fullPipelineDocument() {
+        String qrCodeDataUri = QrCodeGenerator.generateDataUri(BenchmarkFixtures.QR_URL + "/" + sequence++, 300);
+        Map<String, Object> model = BenchmarkFixtures.model(template, payloadSize, qrCodeDataUri);
+        Document document = renderer.renderDocument(template, model);
+        return generator.generatePdf(document, baseUri);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.print.benchmark;
+
+import com.example.print.qr.QrCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrCodeGeneratorBenchmark {
+
+    @Param({"150", "300", "600"})
+    public int size;
+
+    private long sequence;
+
+    @Benchmark
+    public String generateDataUri() {
+        return QrCodeGenerator.generateDataUri(BenchmarkFixtures.QR_URL, size);
+    }
+
+    /**
+     * A different URL on every call, so every call pays the full encoding cost.
+     */
+    @Benchmark
+    public String generateDataUriUniqueText() {
+        return QrCodeGenerator.generateDataUri(BenchmarkFixtures.QR_URL + "/" + sequence++, size);
+    }
+}
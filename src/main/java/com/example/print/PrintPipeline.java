@@ -0,0 +1,160 @@
+package com.example.print;
+
+import com.example.print.cache.DocumentCache;
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.TemplateRegistry;
+import com.example.print.template.TemplateVersions;
+import com.example.print.template.ThymeleafRenderer;
+import org.w3c.dom.Document;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Template name + model → PDF in one call. Create one instance per process and share it between threads:
+ * it owns one Thymeleaf engine with its template, expression and fragment caches and one {@link PdfGenerator}
+ * with its fonts, resource cache and image optimizer, which are all built once and safe for concurrent use.
+ * Everything openhtmltopdf keeps per document (builder, renderer, PDF document, line breakers) is created
+ * per call and never shared, so there is no per-thread state to pool. Documents are rendered straight into
+ * a DOM, skipping the HTML parse.
+ */
+public class PrintPipeline {
+
+    private final ThymeleafRenderer renderer;
+    private final PdfGenerator pdfGenerator;
+    private final String baseUri;
+    private final DocumentCache documentCache;
+    private final TemplateVersions templateVersions;
+
+    /**
+     * @param baseUri base URI for linked stylesheets and images, e.g. the classpath root
+     */
+    public PrintPipeline(String baseUri) {
+        this(new ThymeleafRenderer(), new PdfGenerator(), baseUri, null);
+    }
+
+    /**
+     * @param documentCache returns finished PDFs for a template version and model seen before; {@code null}
+     *                      renders every call. When a template or its stylesheet changes, the parsed template and
+     *                      the cached stylesheets are dropped before the document is rendered under its new key,
+     *                      and so are the PDFs of the old version.
+     *                      Models must then consist of value types; see {@link DocumentCache#key}
+     */
+    public PrintPipeline(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri,
+                         DocumentCache documentCache) {
+        this.renderer = renderer;
+        this.pdfGenerator = pdfGenerator;
+        this.baseUri = baseUri;
+        this.documentCache = documentCache;
+        this.templateVersions = documentCache == null ? null : new TemplateVersions(baseUri, this::templateChanged);
+    }
+
+    public byte[] generate(String templateName, Map<String, Object> model) {
+        if (documentCache != null) {
+            String key = DocumentCache.key(templateName, templateVersions.version(templateName), model);
+            return documentCache.get(key, () -> render(templateName, model));
+        }
+        return render(templateName, model);
+    }
+
+    /**
+     * Writes the PDF to {@code os} as it is produced, or the cached copy if there is one. The stream is
+     * flushed but not closed.
+     */
+    public void generate(String templateName, Map<String, Object> model, OutputStream os) {
+        prepare(templateName, model).writeTo(os);
+    }
+
+    /**
+     * Does everything that can fail because of the template or the model, i.e. renders the template or, with a
+     * document cache, finds or renders the whole PDF, and returns the step that writes the PDF. A server can thus
+     * answer template errors with an error status before it starts a response.
+     */
+    public PreparedDocument prepare(String templateName, Map<String, Object> model) {
+        if (documentCache != null) {
+            String key = DocumentCache.key(templateName, templateVersions.version(templateName), model);
+            byte[] pdf = documentCache.get(key, () -> render(templateName, model));
+            return os -> {
+                try {
+                    os.write(pdf);
+                    os.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write PDF", e);
+                }
+            };
+        }
+        Document document = renderer.renderDocument(templateName, model);
+        return os -> pdfGenerator.generatePdf(document, baseUri, os);
+    }
+
+    /**
+     * A document of {@link #prepare} ready to be written, once.
+     */
+    @FunctionalInterface
+    public interface PreparedDocument {
+
+        /**
+         * Writes the PDF to {@code os}, flushed but not closed.
+         */
+        void writeTo(OutputStream os);
+    }
+
+    /**
+     * Writes the PDF to {@code target}, replacing an existing file.
+     */
+    public void generate(String templateName, Map<String, Object> model, Path target) {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(target))) {
+            generate(templateName, model, os);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write PDF to " + target, e);
+        }
+    }
+
+    /**
+     * Eager initialization for processes that start on demand: warms up the PDF engine and fonts with
+     * {@link PdfGenerator#warmUp()}, then renders and lays out each template once with an empty model. Register
+     * templates that need sample data with a {@link TemplateRegistry} instead.
+     */
+    public PrintPipeline warmUp(String... templateNames) {
+        pdfGenerator.warmUp();
+        TemplateRegistry registry = new TemplateRegistry(renderer, pdfGenerator, baseUri);
+        for (String templateName : templateNames) {
+            registry.register(templateName);
+        }
+        registry.warmUp();
+        return this;
+    }
+
+    private void templateChanged(String templateName, Set<String> stylesheets) {
+        renderer.evictTemplate(templateName);
+        stylesheets.forEach(pdfGenerator::invalidateResource);
+        documentCache.invalidateTemplate(templateName);
+    }
+
+    private byte[] render(String templateName, Map<String, Object> model) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        pdfGenerator.generatePdf(renderer.renderDocument(templateName, model), baseUri, os);
+        return os.toByteArray();
+    }
+
+    /**
+     * The shared renderer, e.g. to build a {@code BatchPdfGenerator} or {@code AsyncPdfGenerator} on the same caches.
+     */
+    public ThymeleafRenderer renderer() {
+        return renderer;
+    }
+
+    public PdfGenerator pdfGenerator() {
+        return pdfGenerator;
+    }
+
+    public String baseUri() {
+        return baseUri;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.print.async;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Renders templates to PDF in the background. Each document runs on its own virtual thread by default and
+ * may carry a deadline; when the deadline passes or the returned future is cancelled, the work stops at the
+ * next checkpoint (between stages or while laying out text) and its slot is freed. At most
+ * {@code maxConcurrentPerTemplate} documents of the same template run at once, so one slow template
+ * cannot take all capacity from the others. Further documents of that template wait in submission order,
+ * without holding a thread, and the next one starts as soon as a running one finishes.
+ */
+public class AsyncPdfGenerator implements AutoCloseable {
+
+    private final ThymeleafRenderer renderer;
+    private final PdfGenerator pdfGenerator;
+    private final String baseUri;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxConcurrentPerTemplate;
+    // Guarded by this; a template's entry is removed once nothing of it runs or waits
+    private final Map<String, Slots> slots = new HashMap<>();
+
+    public AsyncPdfGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri) {
+        this(renderer, pdfGenerator, baseUri, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param executor                 runs the documents; {@code null} uses a virtual thread per document
+     *                                 and shuts it down on {@link #close()}
+     * @param maxConcurrentPerTemplate upper bound of documents of one template rendered at the same time
+     */
+    public AsyncPdfGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri,
+                             ExecutorService executor, int maxConcurrentPerTemplate) {
+        if (maxConcurrentPerTemplate < 1) {
+            throw new IllegalArgumentException("maxConcurrentPerTemplate must be at least 1, was " + maxConcurrentPerTemplate);
+        }
+        this.renderer = renderer;
+        this.pdfGenerator = pdfGenerator;
+        this.baseUri = baseUri;
+        this.ownsExecutor = executor == null;
+        this.executor = executor == null ? Executors.newVirtualThreadPerTaskExecutor() : executor;
+        this.maxConcurrentPerTemplate = maxConcurrentPerTemplate;
+    }
+
+    public CompletableFuture<byte[]> generate(String templateName, Map<String, Object> model) {
+        return generate(templateName, model, null);
+    }
+
+    /**
+     * The future completes exceptionally with a {@link java.util.concurrent.TimeoutException} once
+     * {@code deadline} has passed, counted from this call and including the time spent waiting for a slot.
+     * A document that is cancelled or times out while waiting leaves the queue without being rendered.
+     */
+    public CompletableFuture<byte[]> generate(String templateName, Map<String, Object> model, Duration deadline) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        if (deadline != null) {
+            result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        Job job = new Job(templateName, model, result);
+        boolean start;
+        synchronized (this) {
+            Slots template = slots.computeIfAbsent(templateName, name -> new Slots());
+            start = template.running < maxConcurrentPerTemplate;
+            if (start) {
+                template.running++;
+            } else {
+                template.waiting.add(job);
+            }
+        }
+        if (start) {
+            start(job);
+        } else {
+            result.whenComplete((pdf, failure) -> dequeue(job));
+        }
+        return result;
+    }
+
+    /**
+     * Number of documents of {@code templateName} currently being rendered.
+     */
+    public synchronized int running(String templateName) {
+        Slots template = slots.get(templateName);
+        return template == null ? 0 : template.running;
+    }
+
+    private void start(Job job) {
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            job.result.completeExceptionally(e);
+            release(job.templateName);
+        }
+    }
+
+    private void run(Job job) {
+        CompletableFuture<byte[]> result = job.result;
+        BooleanSupplier cancelled = result::isDone;
+        try {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            Document document = renderer.renderDocument(job.templateName, job.model);
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            pdfGenerator.generatePdf(document, baseUri, os, cancelled);
+            result.complete(os.toByteArray());
+        } catch (CancellationException e) {
+            result.cancel(false);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        } finally {
+            release(job.templateName);
+        }
+    }
+
+    /**
+     * Hands the finished document's slot to the next waiting document of the template, or frees it.
+     */
+    private void release(String templateName) {
+        Job next;
+        synchronized (this) {
+            Slots template = slots.get(templateName);
+            next = template.waiting.poll();
+            if (next == null) {
+                template.running--;
+                prune(templateName, template);
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    /**
+     * Removes a cancelled or timed out document from the queue; a no-op once it has started.
+     */
+    private synchronized void dequeue(Job job) {
+        Slots template = slots.get(job.templateName);
+        if (template != null && template.waiting.remove(job)) {
+            prune(job.templateName, template);
+        }
+    }
+
+    private void prune(String templateName, Slots template) {
+        if (template.running == 0 && template.waiting.isEmpty()) {
+            slots.remove(templateName);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Shuts down an executor created by this generator after the running and waiting documents are done.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            synchronized (this) {
+                try {
+                    while (!slots.isEmpty()) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            executor.close();
+        }
+    }
+
+    private static final class Slots {
+        int running;
+        final Deque<Job> waiting = new ArrayDeque<>();
+    }
+
+    // Identity equality, so dequeue removes exactly this submission
+    private static final class Job {
+        final String templateName;
+        final Map<String, Object> model;
+        final CompletableFuture<byte[]> result;
+
+        Job(String templateName, Map<String, Object> model, CompletableFuture<byte[]> result) {
+            this.templateName = templateName;
+            this.model = model;
+            this.result = result;
+        }
+    }
+}
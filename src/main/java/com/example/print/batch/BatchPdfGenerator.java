@@ -0,0 +1,117 @@
+package com.example.print.batch;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.w3c.dom.Document;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Renders many models of one template concurrently. At most {@code maxInFlight} documents are
+ * rendered or waiting for the sink at any time; the model source is only advanced when a slot is free.
+ * A failing document is reported to {@link BatchSink#failed} and does not abort the batch; an {@link Error} is
+ * reported and then rethrown on the worker thread. If the model source throws, the documents already submitted
+ * are finished before the exception is passed on.
+ */
+public class BatchPdfGenerator {
+
+    private final ThymeleafRenderer renderer;
+    private final PdfGenerator pdfGenerator;
+    private final String baseUri;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /**
+     * Uses a new virtual thread per document and allows two documents in flight per available processor.
+     */
+    public BatchPdfGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri) {
+        this(renderer, pdfGenerator, baseUri, null, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param executor executor for document tasks, or {@code null} for virtual threads; it is not shut down by the batch
+     */
+    public BatchPdfGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri,
+                             ExecutorService executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+        }
+        this.renderer = renderer;
+        this.pdfGenerator = pdfGenerator;
+        this.baseUri = baseUri;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public BatchResult generate(String templateName, Stream<? extends Map<String, Object>> models, BatchSink sink) {
+        return generate(templateName, models.iterator(), sink);
+    }
+
+    public BatchResult generate(String templateName, Iterator<? extends Map<String, Object>> models, BatchSink sink) {
+        if (executor != null) {
+            return run(executor, templateName, models, sink);
+        }
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            return run(virtualThreads, templateName, models, sink);
+        }
+    }
+
+    private BatchResult run(ExecutorService workers, String templateName,
+                            Iterator<? extends Map<String, Object>> models, BatchSink sink) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long submitted = 0;
+        try {
+            while (models.hasNext()) {
+                inFlight.acquire();
+                Map<String, Object> model;
+                try {
+                    model = models.next();
+                } catch (RuntimeException | Error e) {
+                    inFlight.release();
+                    throw e;
+                }
+                long index = submitted++;
+                try {
+                    workers.execute(() -> {
+                        try {
+                            Document document = renderer.renderDocument(templateName, model);
+                            sink.accept(index, pdfGenerator.generatePdf(document, baseUri));
+                            succeeded.incrementAndGet();
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                            sink.failed(index, e);
+                        } catch (Error e) {
+                            failed.incrementAndGet();
+                            sink.failed(index, e);
+                            throw e;
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            inFlight.acquireUninterruptibly(maxInFlight);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch interrupted after " + submitted + " documents", e);
+        } catch (RuntimeException | Error e) {
+            // documents already submitted must not reach the sink after the batch has returned
+            inFlight.acquireUninterruptibly(maxInFlight);
+            throw e;
+        }
+        return new BatchResult(submitted, succeeded.get(), failed.get());
+    }
+}
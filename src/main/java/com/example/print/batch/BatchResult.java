@@ -0,0 +1,4 @@
+package com.example.print.batch;
+
+public record BatchResult(long submitted, long succeeded, long failed) {
+}
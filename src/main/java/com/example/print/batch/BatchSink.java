@@ -0,0 +1,27 @@
+package com.example.print.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongFunction;
+
+/**
+ * Receives the documents of a batch as they finish. Methods are called concurrently from worker threads.
+ */
+public interface BatchSink {
+
+    void accept(long index, byte[] pdf) throws IOException;
+
+    /**
+     * Called instead of {@link #accept} when rendering or {@code accept} threw, including {@link Error}s.
+     */
+    default void failed(long index, Throwable cause) {
+    }
+
+    /**
+     * Writes every document to {@code directory.resolve(fileNames.apply(index))}.
+     */
+    static BatchSink toDirectory(Path directory, LongFunction<String> fileNames) {
+        return (index, pdf) -> Files.write(directory.resolve(fileNames.apply(index)), pdf);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.print.batch;
+
+import com.example.print.json.Json;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Batch run that survives crashes and can be shared between processes. Models are read from a newline-delimited
+ * JSON file, one object per line; the PDF of line {@code n} (counting from 0) goes to the spool directory as
+ * {@code fileNames.apply(n)}. Each PDF is written to a {@code .part} file, synced and renamed atomically, so a
+ * file under its final name is always complete. Finished lines are appended to a journal in the spool directory
+ * and a restarted job skips them; failed lines are journaled as well and tried again on the next run.
+ * <p>
+ * Lines are claimed in chunks through file locks in {@code <spool>/claims}, so several jobs on one machine, in
+ * one JVM or in separate ones, can work through the same input and spool directory at once and render each line
+ * once. The operating system drops the locks of a process that dies, and the next run picks up its chunk.
+ */
+public class SpoolJob {
+
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    static final String JOURNAL = "journal";
+    static final String CLAIMS = "claims";
+
+    private final BatchPdfGenerator generator;
+    private final String templateName;
+    private final Path input;
+    private final Path spoolDirectory;
+    private final int chunkSize;
+    private final LongFunction<String> fileNames;
+
+    /**
+     * Claims {@value #DEFAULT_CHUNK_SIZE} lines at a time and names the PDFs {@code 00000000.pdf},
+     * {@code 00000001.pdf}, ...
+     */
+    public SpoolJob(BatchPdfGenerator generator, String templateName, Path input, Path spoolDirectory) {
+        this(generator, templateName, input, spoolDirectory, DEFAULT_CHUNK_SIZE, index -> String.format("%08d.pdf", index));
+    }
+
+    /**
+     * @param chunkSize lines claimed at a time; all jobs sharing a spool directory must use the same value
+     * @param fileNames file name of the PDF for a line number, relative to the spool directory
+     */
+    public SpoolJob(BatchPdfGenerator generator, String templateName, Path input, Path spoolDirectory,
+                    int chunkSize, LongFunction<String> fileNames) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1, was " + chunkSize);
+        }
+        this.generator = generator;
+        this.templateName = templateName;
+        this.input = input;
+        this.spoolDirectory = spoolDirectory;
+        this.chunkSize = chunkSize;
+        this.fileNames = fileNames;
+    }
+
+    /**
+     * Renders every line that is neither done nor claimed by another job, chunk by chunk. Blank lines are ignored.
+     */
+    public SpoolResult run() {
+        try {
+            Files.createDirectories(spoolDirectory.resolve(CLAIMS));
+            try (Journal journal = new Journal(spoolDirectory.resolve(JOURNAL));
+                 BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                return run(reader, journal);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to run spool job for " + input, e);
+        }
+    }
+
+    private SpoolResult run(BufferedReader reader, Journal journal) throws IOException {
+        long[] counts = new long[3];
+        List<String> lines = new ArrayList<>(chunkSize);
+        for (long chunk = 0; ; chunk++) {
+            lines.clear();
+            String line;
+            while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            if (lines.isEmpty()) {
+                return new SpoolResult(counts[0], counts[1], counts[2]);
+            }
+            runChunk(chunk, lines, journal, counts);
+        }
+    }
+
+    private void runChunk(long chunk, List<String> lines, Journal journal, long[] counts) throws IOException {
+        long first = chunk * chunkSize;
+        try (FileChannel claim = FileChannel.open(spoolDirectory.resolve(CLAIMS).resolve(chunk + ".lock"), CREATE, WRITE)) {
+            if (!tryLock(claim)) {
+                counts[2] += lines.stream().filter(line -> !line.isBlank()).count();
+                return;
+            }
+            journal.refresh();
+            List<Long> indices = new ArrayList<>();
+            List<Map<String, Object>> models = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                long index = first + i;
+                String line = lines.get(i);
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (journal.isDone(index) && Files.exists(target(index))) {
+                    counts[2]++;
+                    continue;
+                }
+                try {
+                    models.add(Json.parseObject(line));
+                    indices.add(index);
+                } catch (IllegalArgumentException e) {
+                    journal.failed(index, e);
+                    counts[1]++;
+                }
+            }
+            BatchResult result = generator.generate(templateName, models.iterator(), new BatchSink() {
+                @Override
+                public void accept(long i, byte[] pdf) throws IOException {
+                    long index = indices.get((int) i);
+                    write(index, pdf);
+                    journal.done(index);
+                }
+
+                @Override
+                public void failed(long i, Throwable cause) {
+                    try {
+                        journal.failed(indices.get((int) i), cause);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to write spool journal", e);
+                    }
+                }
+            });
+            syncDirectory();
+            journal.sync();
+            counts[0] += result.succeeded();
+            counts[1] += result.failed();
+        }
+    }
+
+    /**
+     * {@code false} if another process, or another job in this JVM, holds the chunk.
+     */
+    private static boolean tryLock(FileChannel claim) throws IOException {
+        try {
+            return claim.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private Path target(long index) {
+        return spoolDirectory.resolve(fileNames.apply(index));
+    }
+
+    private void write(long index, byte[] pdf) throws IOException {
+        Path target = target(index);
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(part, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(pdf);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Makes the renames of the chunk durable before the journal is; not every platform can sync a directory.
+     */
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(spoolDirectory, READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    /**
+     * Append-only log of {@code done <line>} and {@code failed <line> <reason>} records shared by all jobs on a
+     * spool directory. Records are short single writes to a file opened for appending, so records of concurrent
+     * jobs never interleave; a record torn by a crash is skipped when reading. Done lines are kept as bit sets of
+     * {@code 2^PAGE_BITS} lines each, so line numbers may use the whole {@code long} range.
+     */
+    static final class Journal implements Closeable {
+
+        private static final int MAX_REASON_LENGTH = 500;
+        private static final int PAGE_BITS = 16;
+
+        private final FileChannel appender;
+        private final FileChannel reader;
+        private final Map<Long, BitSet> done = new HashMap<>();
+        private long position;
+
+        Journal(Path file) throws IOException {
+            appender = FileChannel.open(file, CREATE, WRITE, APPEND);
+            reader = FileChannel.open(file, READ);
+            long size = reader.size();
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    append("\n");
+                }
+            }
+        }
+
+        /**
+         * Reads the records appended since the last call, including those of other jobs.
+         */
+        synchronized void refresh() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long size = reader.size();
+            while (position < size) {
+                buffer.clear();
+                int read = reader.read(buffer, position);
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        parse(new String(buffer.array(), start, i - start, StandardCharsets.UTF_8));
+                        start = i + 1;
+                    }
+                }
+                if (start == 0) {
+                    return; // a record still being written
+                }
+                position += start;
+            }
+        }
+
+        private void parse(String record) {
+            if (!record.startsWith("done ")) {
+                return;
+            }
+            long index;
+            try {
+                index = Long.parseLong(record.substring(5).trim());
+            } catch (NumberFormatException e) {
+                return; // torn or foreign record
+            }
+            if (index >= 0) {
+                mark(index);
+            }
+        }
+
+        synchronized boolean isDone(long index) {
+            BitSet page = done.get(index >>> PAGE_BITS);
+            return page != null && page.get((int) (index & ((1 << PAGE_BITS) - 1)));
+        }
+
+        void done(long index) throws IOException {
+            append("done " + index + "\n");
+            synchronized (this) {
+                mark(index);
+            }
+        }
+
+        private void mark(long index) {
+            done.computeIfAbsent(index >>> PAGE_BITS, page -> new BitSet(1 << PAGE_BITS))
+                    .set((int) (index & ((1 << PAGE_BITS) - 1)));
+        }
+
+        void failed(long index, Throwable cause) throws IOException {
+            String reason = (cause.getClass().getName() + ": " + cause.getMessage()).replaceAll("\\s+", " ");
+            if (reason.length() > MAX_REASON_LENGTH) {
+                reason = reason.substring(0, MAX_REASON_LENGTH);
+            }
+            append("failed " + index + " " + reason + "\n");
+        }
+
+        void sync() throws IOException {
+            appender.force(false);
+        }
+
+        private void append(String record) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                appender.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (reader) {
+                appender.force(false);
+                appender.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.print.batch;
+
+/**
+ * Outcome of one {@link SpoolJob#run()}. {@code skipped} counts lines found done in the journal and lines in
+ * chunks another job held at the time.
+ */
+public record SpoolResult(long succeeded, long failed, long skipped) {
+}
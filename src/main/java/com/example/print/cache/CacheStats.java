@@ -0,0 +1,16 @@
+package com.example.print.cache;
+
+/**
+ * Point-in-time counters of one cache. {@code size} is in the cache's own unit (entries or bytes).
+ */
+public record CacheStats(long hits, long misses, long evictions, long size) {
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        long requests = requests();
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,474 @@
+package com.example.print.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache of finished PDFs. Keys come from {@link #key}, which hashes the template name, a template
+ * version and the model, so a changed template or stylesheet yields new keys rather than stale hits; the entries of
+ * the old version are dropped with {@link #invalidateTemplate}. Entries live in an in-memory LRU bounded by bytes
+ * and, optionally, in a directory that survives restarts, which is an LRU bounded by bytes as well. Safe to share
+ * across threads; concurrent misses for one key may both render. A disk tier that cannot be read or written is
+ * logged and skipped, so that the cache never fails a render.
+ */
+public class DocumentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentCache.class);
+    private static final String SUFFIX = ".pdf";
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]*\\.[0-9a-f]{64}");
+    private static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final Map<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * A disk tier of at most 1 GiB.
+     *
+     * @param directory directory for the disk tier, created if missing, or {@code null} for memory only
+     */
+    public DocumentCache(long maxMemoryBytes, Path directory) {
+        this(maxMemoryBytes, directory, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * @param directory    directory for the disk tier, created if missing, or {@code null} for memory only. PDFs
+     *                     already in it are kept, oldest first out
+     * @param maxDiskBytes bytes of PDFs kept in {@code directory}; the least recently used are deleted beyond that
+     */
+    public DocumentCache(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("maxMemoryBytes must not be negative, was " + maxMemoryBytes);
+        }
+        if (maxDiskBytes < 0) {
+            throw new IllegalArgumentException("maxDiskBytes must not be negative, was " + maxDiskBytes);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                loadDirectory();
+            } catch (IOException e) {
+                LOG.warn("Failed to open document cache directory {}, starting with an empty disk tier", directory, e);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the cached PDF for {@code key}, which must come from {@link #key}, or renders it with
+     * {@code pdf} outside the lock and caches it.
+     *
+     * @throws IllegalArgumentException if {@code key} is not of the form {@link #key} returns
+     */
+    public byte[] get(String key, Supplier<byte[]> pdf) {
+        return lookup(key, pdf).clone();
+    }
+
+    /**
+     * Like {@link #get}, but writes the PDF to {@code os} without copying it. The stream is not flushed or closed.
+     */
+    public void write(String key, Supplier<byte[]> pdf, OutputStream os) {
+        try {
+            os.write(lookup(key, pdf));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write cached document " + key, e);
+        }
+    }
+
+    /**
+     * The cached array itself, which must not leave this class.
+     */
+    private byte[] lookup(String key, Supplier<byte[]> pdf) {
+        checkKey(key);
+        synchronized (this) {
+            byte[] cached = memory.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+        }
+        byte[] stored = readFromDisk(key);
+        if (stored != null) {
+            synchronized (this) {
+                diskHits++;
+                putInMemory(key, stored);
+            }
+            return stored;
+        }
+        synchronized (this) {
+            misses++;
+        }
+        byte[] rendered = pdf.get();
+        writeToDisk(key, rendered);
+        synchronized (this) {
+            putInMemory(key, rendered);
+        }
+        return rendered;
+    }
+
+    public void invalidate(String key) {
+        checkKey(key);
+        synchronized (this) {
+            removeFromMemory(key);
+            removeFromDisk(key);
+        }
+        if (directory != null) {
+            delete(List.of(key));
+        }
+    }
+
+    /**
+     * Drops every entry of {@code templateName}, whatever its version; for when the template or a stylesheet it
+     * links has changed and the old entries will not be asked for again.
+     */
+    public void invalidateTemplate(String templateName) {
+        String prefix = fileName(templateName) + '.';
+        List<String> deleted = new ArrayList<>();
+        synchronized (this) {
+            for (String key : new ArrayList<>(memory.keySet())) {
+                if (key.startsWith(prefix)) {
+                    removeFromMemory(key);
+                }
+            }
+            for (String key : new ArrayList<>(disk.keySet())) {
+                if (key.startsWith(prefix)) {
+                    removeFromDisk(key);
+                    deleted.add(key);
+                }
+            }
+        }
+        delete(deleted);
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+            disk.clear();
+            diskBytes = 0;
+        }
+        if (directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to clear document cache {}", directory, e);
+            }
+        }
+    }
+
+    /**
+     * Hits from either tier count as hits; {@link CacheStats#size()} is the number of bytes held in memory.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits + diskHits, misses, evictions, memoryBytes);
+    }
+
+    /**
+     * Hashes the template name, its version and the model into a stable key, prefixed with the template name as far
+     * as it is safe in a file name. Maps are compared independent of iteration order, records by their components.
+     * Only value types can be part of a key: strings, numbers, booleans, characters, enums, {@code java.time} values,
+     * UUIDs, byte arrays, records, and collections and maps of those. Other objects may print only part of their
+     * state or none of it, so they are rejected.
+     *
+     * @throws IllegalArgumentException if the model holds a value of another type
+     */
+    public static String key(String templateName, String templateVersion, Map<String, ?> model) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(templateName).append('\n').append(templateVersion).append('\n');
+        appendCanonical(canonical, model);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return fileName(templateName) + '.'
+                    + HexFormat.of().formatHex(sha256.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The template name with everything but letters, digits, {@code -} and {@code _} replaced, so that it cannot
+     * contain the {@code .} that ends the prefix.
+     */
+    private static String fileName(String templateName) {
+        return templateName.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Keys name files in the disk tier, so only the form {@link #key} produces is accepted; anything else, such as
+     * {@code ../x}, could reach outside the cache directory.
+     */
+    private static void checkKey(String key) {
+        if (!KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not a document cache key: " + key);
+        }
+    }
+
+    private static void appendCanonical(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> {
+                StringBuilder canonicalKey = new StringBuilder();
+                appendCanonical(canonicalKey, k);
+                sorted.put(canonicalKey.toString(), v);
+            });
+            out.append('{');
+            sorted.forEach((k, v) -> {
+                out.append(k);
+                out.append('=');
+                appendCanonical(out, v);
+                out.append(',');
+            });
+            out.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            out.append('[');
+            for (Object element : collection) {
+                appendCanonical(out, element);
+                out.append(',');
+            }
+            out.append(']');
+        } else if (value instanceof byte[] bytes) {
+            out.append("bytes:").append(HexFormat.of().formatHex(bytes));
+        } else if (value instanceof Record record) {
+            out.append(record.getClass().getName()).append('(');
+            for (RecordComponent component : record.getClass().getRecordComponents()) {
+                appendString(out, component.getName());
+                out.append('=');
+                appendCanonical(out, component(record, component));
+                out.append(',');
+            }
+            out.append(')');
+        } else if (value instanceof Enum<?> constant) {
+            out.append(constant.getDeclaringClass().getName()).append(':');
+            appendString(out, constant.name());
+        } else if (isValue(value)) {
+            out.append(value.getClass().getName()).append(':');
+            appendString(out, value.toString());
+        } else {
+            throw new IllegalArgumentException("Model value of type " + value.getClass().getName()
+                    + " cannot be part of a document cache key; use records, strings, numbers or collections of those");
+        }
+    }
+
+    /**
+     * JDK types whose {@code toString()} is their complete value. Subclasses of {@link Number} and
+     * {@link TemporalAccessor} from outside the JDK are not trusted.
+     */
+    private static boolean isValue(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof UUID) {
+            return true;
+        }
+        return (value instanceof Number || value instanceof TemporalAccessor)
+                && value.getClass().getModule() == Object.class.getModule();
+    }
+
+    private static Object component(Record record, RecordComponent component) {
+        try {
+            Method accessor = component.getAccessor();
+            accessor.setAccessible(true);
+            return accessor.invoke(record);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Failed to read component " + component.getName() + " of "
+                    + record.getClass().getName() + " for a document cache key", e);
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append(value.length()).append(':').append(value);
+    }
+
+    private void putInMemory(String key, byte[] pdf) {
+        if (pdf.length > maxMemoryBytes) {
+            return;
+        }
+        byte[] previous = memory.put(key, pdf);
+        memoryBytes += pdf.length - (previous == null ? 0 : previous.length);
+        Iterator<byte[]> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes) {
+            memoryBytes -= eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void removeFromMemory(String key) {
+        byte[] removed = memory.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.length;
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        Long removed = disk.remove(key);
+        if (removed != null) {
+            diskBytes -= removed;
+        }
+    }
+
+    /**
+     * Records a file in the disk tier and returns the keys of the least recently used files beyond the budget,
+     * which the caller deletes outside the lock.
+     */
+    private List<String> putOnDisk(String key, long size) {
+        Long previous = disk.put(key, size);
+        diskBytes += size - (previous == null ? 0 : previous);
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes) {
+            Map.Entry<String, Long> entry = eldest.next();
+            diskBytes -= entry.getValue();
+            evicted.add(entry.getKey());
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    private void loadDirectory() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Map<Path, FileTime> lastModified = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (!KEY.matcher(name.substring(0, name.length() - SUFFIX.length())).matches()) {
+                continue;
+            }
+            try {
+                lastModified.put(file, Files.getLastModifiedTime(file));
+                sizes.put(file, Files.size(file));
+            } catch (NoSuchFileException e) {
+                // deleted by another instance on the same directory
+            }
+        }
+        List<Path> entries = new ArrayList<>(sizes.keySet());
+        entries.sort(Comparator.comparing(lastModified::get));
+        List<String> evicted = new ArrayList<>();
+        for (Path file : entries) {
+            String name = file.getFileName().toString();
+            evicted.addAll(putOnDisk(name.substring(0, name.length() - SUFFIX.length()), sizes.get(file)));
+        }
+        delete(evicted);
+    }
+
+    /**
+     * Also finds files written by another instance on the same directory, which then count towards the budget.
+     */
+    private byte[] readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        byte[] stored;
+        try {
+            stored = Files.readAllBytes(file(key));
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                removeFromDisk(key);
+            }
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Failed to read cached document {}, rendering it again", key, e);
+            return null;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            evicted = putOnDisk(key, stored.length);
+        }
+        delete(evicted);
+        return stored;
+    }
+
+    private void writeToDisk(String key, byte[] pdf) {
+        if (directory == null || pdf.length > maxDiskBytes) {
+            return;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, pdf);
+            try {
+                Files.move(temp, file(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write cached document {}, keeping it in memory only", key, e);
+            deleteQuietly(temp);
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            evicted = putOnDisk(key, pdf.length);
+        }
+        delete(evicted);
+    }
+
+    private void delete(List<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                LOG.warn("Failed to delete cached document {}", key, e);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete {}", temp, e);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.print.metrics;
+
+/**
+ * Receives timings of the render pipeline. Register one with {@link RenderMetrics#setListener}.
+ * Methods are called on the rendering thread, concurrently for concurrent documents, and must be cheap.
+ * {@code template} is {@code null} when the work is not tied to a template, e.g. for QR codes or
+ * HTML strings passed to {@code PdfGenerator} directly.
+ */
+public interface RenderListener {
+
+    RenderListener NONE = new RenderListener() {
+    };
+
+    /**
+     * @param allocatedBytes heap allocated by the rendering thread during the stage, or -1 if the JVM cannot tell
+     */
+    default void stageCompleted(String template, Stage stage, long nanos, long allocatedBytes) {
+    }
+
+    default void documentCompleted(String template, int pages, long bytes) {
+    }
+}
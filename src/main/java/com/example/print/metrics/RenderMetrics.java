@@ -0,0 +1,114 @@
+package com.example.print.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Process-wide hook for pipeline instrumentation. While no listener is registered, {@link #start()} returns
+ * {@code null} and instrumented code skips all clock and allocation reads.
+ */
+public final class RenderMetrics {
+
+    /** {@link org.w3c.dom.Document} user-data key under which the template name travels with a rendered DOM. */
+    public static final String TEMPLATE_KEY = "com.example.print.template";
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private static volatile RenderListener listener = RenderListener.NONE;
+
+    private RenderMetrics() {
+    }
+
+    public static void setListener(RenderListener renderListener) {
+        listener = renderListener == null ? RenderListener.NONE : renderListener;
+    }
+
+    public static RenderListener listener() {
+        return listener;
+    }
+
+    /**
+     * Starts timing a stage on the current thread, or returns {@code null} if no listener is registered.
+     */
+    public static Timer start() {
+        RenderListener current = listener;
+        return current == RenderListener.NONE ? null : new Timer(current);
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 where the JVM cannot tell. That includes virtual threads,
+     * for which JDK 21 does not track allocations.
+     */
+    private static long allocatedBytes() {
+        return THREADS == null || Thread.currentThread().isVirtual() ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    public static final class Timer {
+
+        private final RenderListener listener;
+        private long startNanos;
+        private long startAllocated;
+        private long pausedNanos;
+        private long pausedAllocated;
+
+        private Timer(RenderListener listener) {
+            this.listener = listener;
+            restart();
+        }
+
+        /**
+         * Reports the stage since the last {@code stop} (or since start) and starts timing the next one.
+         */
+        public void stop(String template, Stage stage) {
+            listener.stageCompleted(template, stage, pausedNanos + System.nanoTime() - startNanos, allocated());
+            restart();
+        }
+
+        public void documentCompleted(String template, int pages, long bytes) {
+            listener.documentCompleted(template, pages, bytes);
+        }
+
+        /**
+         * Discards the time since the last {@code stop}, e.g. time spent in a caller-supplied iterator.
+         */
+        public void restart() {
+            pausedNanos = 0;
+            pausedAllocated = 0;
+            startAllocated = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Sets the time since the last {@code stop} aside without reporting it; {@link #resume()} continues the
+         * same stage. Time in between is discarded, as with {@link #restart()}.
+         */
+        public void pause() {
+            long nanos = pausedNanos + System.nanoTime() - startNanos;
+            long allocated = allocated();
+            restart();
+            pausedNanos = nanos;
+            pausedAllocated = allocated;
+        }
+
+        public void resume() {
+            startAllocated = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * -1 if the allocations of this stage, or of a paused part of it, are unknown.
+         */
+        private long allocated() {
+            long current = allocatedBytes();
+            return startAllocated < 0 || pausedAllocated < 0 || current < 0
+                    ? -1 : pausedAllocated + current - startAllocated;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.print.metrics;
+
+/**
+ * Steps of producing one document, in pipeline order.
+ */
+public enum Stage {
+
+    /** Encoding a QR code data URI, including cache lookups. */
+    QR_CODE,
+
+    /** Thymeleaf processing of the template into HTML or a DOM. */
+    TEMPLATE,
+
+    /** Parsing the HTML and loading and parsing linked stylesheets. */
+    PARSE,
+
+    /** openhtmltopdf box layout and pagination. */
+    LAYOUT,
+
+    /** Drawing pages, embedding fonts and images, and writing the PDF. */
+    OUTPUT
+}
@@ -0,0 +1,40 @@
+package com.example.print.pdf;
+
+import com.openhtmltopdf.extend.FSTextBreaker;
+import com.openhtmltopdf.layout.UrlAwareLineBreakIterator;
+
+import java.text.BreakIterator;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * openhtmltopdf's default line breaker with a cancellation check. Layout asks for line breaks for every
+ * text run, so this is the one hook that lets a long layout stop early.
+ */
+final class CancellableLineBreaker implements FSTextBreaker {
+
+    private final FSTextBreaker delegate = new UrlAwareLineBreakIterator(BreakIterator.getLineInstance(Locale.US));
+    private final BooleanSupplier cancelled;
+
+    CancellableLineBreaker(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    static void check(BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new CancellationException("PDF generation cancelled");
+        }
+    }
+
+    @Override
+    public int next() {
+        return delegate.next();
+    }
+
+    @Override
+    public void setText(String newText) {
+        check(cancelled);
+        delegate.setText(newText);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.print.pdf;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.pdfboxout.PDFontSupplier;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds font files in memory so that every {@link PdfGenerator} run can hand them to
+ * openhtmltopdf without touching the classpath or the file system again. Font metrics
+ * are cached as well. Fonts are registered once at startup; the registry is safe to share across threads.
+ */
+public class FontRegistry {
+
+    public static final String DEFAULT_FONT_RESOURCE = "fonts/DejaVuSans.ttf";
+    public static final String DEFAULT_FONT_FAMILY = "DejaVuSans";
+
+    private static final FontRegistry DEFAULT = withDefaultFont().readOnly();
+
+    private final Map<String, ByteBuffer> fonts = new ConcurrentHashMap<>();
+    private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+    private volatile boolean readOnly;
+
+    /**
+     * Returns the process-wide registry containing the bundled DejaVuSans font. It is shared by every
+     * {@link PdfGenerator} built without a registry and cannot be changed: registering a font on it throws
+     * {@link UnsupportedOperationException}. Start from {@link #withDefaultFont()} to add fonts.
+     */
+    public static FontRegistry defaultRegistry() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a new registry that already contains the bundled DejaVuSans font.
+     */
+    public static FontRegistry withDefaultFont() {
+        return new FontRegistry().registerClasspathFont(DEFAULT_FONT_FAMILY, DEFAULT_FONT_RESOURCE);
+    }
+
+    public FontRegistry register(String fontFamily, byte[] fontData) {
+        put(fontFamily, ByteBuffer.wrap(fontData.clone()).asReadOnlyBuffer());
+        return this;
+    }
+
+    public FontRegistry registerClasspathFont(String fontFamily, String resource) {
+        try (InputStream fontStream = FontRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (fontStream == null) {
+                throw new IOException("Font file not found on classpath: " + resource);
+            }
+            put(fontFamily, ByteBuffer.wrap(fontStream.readAllBytes()).asReadOnlyBuffer());
+            return this;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load font " + fontFamily, e);
+        }
+    }
+
+    /**
+     * Registers a font file by memory-mapping it once; the mapping stays valid after the channel is closed.
+     */
+    public FontRegistry registerFontFile(String fontFamily, Path fontFile) {
+        try (FileChannel channel = FileChannel.open(fontFile, StandardOpenOption.READ)) {
+            put(fontFamily, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer());
+            return this;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load font " + fontFamily, e);
+        }
+    }
+
+    /**
+     * Returns a new registry with the fonts of this one, their TrueType hinting removed. Outlines and metrics are
+     * unchanged, so the PDF looks the same in print and in viewers; each embedded subset gets roughly half as
+     * large. Fonts registered here later are not carried over.
+     */
+    public FontRegistry withoutHinting() {
+        FontRegistry unhinted = new FontRegistry();
+        fonts.forEach((family, data) -> {
+            byte[] font = new byte[data.remaining()];
+            data.duplicate().get(font);
+            unhinted.fonts.put(family, ByteBuffer.wrap(TrueTypeHinting.strip(font)).asReadOnlyBuffer());
+        });
+        return unhinted;
+    }
+
+    private void put(String fontFamily, ByteBuffer data) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The default font registry is shared and cannot be changed; "
+                    + "register " + fontFamily + " on FontRegistry.withDefaultFont() instead");
+        }
+        fonts.put(fontFamily, data);
+    }
+
+    private FontRegistry readOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    public boolean contains(String fontFamily) {
+        return fonts.containsKey(fontFamily);
+    }
+
+    Set<String> families() {
+        return Collections.unmodifiableSet(fonts.keySet());
+    }
+
+    void applyTo(PdfRendererBuilder builder) {
+        builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+        fonts.forEach((family, data) -> builder.useFont(() -> new ByteBufferInputStream(data.duplicate()), family));
+    }
+
+    /**
+     * One supplier per registered font for the renders of {@code document}. A font is loaded into the document
+     * the first time a render uses it, so several renders share one embedded subset per family and families
+     * nobody uses are not embedded at all.
+     */
+    Map<String, PDFontSupplier> suppliersFor(PDDocument document) {
+        Map<String, PDFontSupplier> suppliers = new HashMap<>();
+        fonts.forEach((family, data) -> suppliers.put(family, new DocumentFont(document, family, data)));
+        return suppliers;
+    }
+
+    void applyTo(PdfRendererBuilder builder, Map<String, PDFontSupplier> suppliers) {
+        builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+        suppliers.forEach((family, supplier) -> builder.useFont(supplier, family));
+    }
+
+    private static final class DocumentFont extends PDFontSupplier {
+
+        private final PDDocument document;
+        private final String family;
+        private final ByteBuffer data;
+        private PDFont font;
+
+        DocumentFont(PDDocument document, String family, ByteBuffer data) {
+            super(null);
+            this.document = document;
+            this.family = family;
+            this.data = data;
+        }
+
+        @Override
+        public PDFont supply() {
+            if (font == null) {
+                try {
+                    font = PDType0Font.load(document, new ByteBufferInputStream(data.duplicate()), true);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to load font " + family, e);
+                }
+            }
+            return font;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.print.pdf;
+
+import com.example.print.cache.CacheStats;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prepares images embedded as base64 data URIs, as produced by WordHTML or {@code th:src} QR codes, before
+ * layout. Each distinct image is decoded once, scaled down to what its display size needs at the target print
+ * resolution and re-encoded as the smaller of PNG and, for opaque images, JPEG. Line art with only two colours,
+ * such as QR codes, is scaled by nearest neighbour and always kept as PNG, so its edges stay sharp. The result is
+ * cached, and rendered documents load it through a stream instead of decoding base64 again; the {@code src}
+ * attributes of a caller's DOM are put back after the render. Images are never scaled up; SVG and images that
+ * cannot be decoded are left alone. Safe to share across threads.
+ */
+public class ImageOptimizer {
+
+    public static final int DEFAULT_DPI = 300;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    public static final float DEFAULT_JPEG_QUALITY = 0.85f;
+    static final String PROTOCOL = "print-image";
+
+    private static final double CSS_PX_PER_INCH = 96;
+    private static final double A4_WIDTH_INCHES = 210 / 25.4;
+    private static final Pattern DATA_URI = Pattern.compile("data:image/([\\w.+-]+)(?:;[^,]*)?;base64,", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LENGTH = Pattern.compile("([\\d.]+)\\s*(px|mm|cm|in|pt)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern STYLE_WIDTH = styleProperty("width");
+    private static final Pattern STYLE_HEIGHT = styleProperty("height");
+
+    private final int dpi;
+    private final float jpegQuality;
+    private final long maxBytes;
+    private final Map<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ImageOptimizer() {
+        this(DEFAULT_DPI, DEFAULT_JPEG_QUALITY, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param dpi         print resolution images are scaled down to
+     * @param jpegQuality JPEG quality between 0 and 1 for opaque images
+     * @param maxBytes    upper bound of cached image data, source URIs included
+     */
+    public ImageOptimizer(int dpi, float jpegQuality, long maxBytes) {
+        if (dpi < 1) {
+            throw new IllegalArgumentException("dpi must be at least 1, was " + dpi);
+        }
+        if (jpegQuality <= 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("jpegQuality must be in (0, 1], was " + jpegQuality);
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1, was " + maxBytes);
+        }
+        this.dpi = dpi;
+        this.jpegQuality = jpegQuality;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Replaces the data URIs in {@code document} with references to optimized images, which are collected in
+     * {@code rewrites}. It keeps them alive for this render even if the cache evicts them meanwhile.
+     */
+    void optimize(Document document, Rewrites rewrites) {
+        NodeList elements = document.getElementsByTagName("img");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element img = (Element) elements.item(i);
+            String src = img.getAttribute("src");
+            Matcher dataUri = DATA_URI.matcher(src);
+            if (!dataUri.lookingAt() || dataUri.group(1).toLowerCase(Locale.ROOT).startsWith("svg")) {
+                continue;
+            }
+            int maxWidth = targetPixels(img, "width", STYLE_WIDTH, A4_WIDTH_INCHES);
+            int maxHeight = targetPixels(img, "height", STYLE_HEIGHT, Double.NaN);
+            byte[] optimized = get(new Key(src, maxWidth, maxHeight),
+                    () -> optimize(Base64.getMimeDecoder().decode(src.substring(dataUri.end())), maxWidth, maxHeight));
+            if (optimized != null) {
+                String uri = PROTOCOL + ":" + rewrites.images.size();
+                rewrites.images.put(uri, optimized);
+                rewrites.sources.put(img, src);
+                img.setAttribute("src", uri);
+            }
+        }
+    }
+
+    private byte[] get(Key key, ImageSource source) {
+        synchronized (this) {
+            byte[] cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        byte[] optimized;
+        try {
+            optimized = source.load();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        if (optimized != null) {
+            put(key, optimized);
+        }
+        return optimized;
+    }
+
+    private synchronized void put(Key key, byte[] data) {
+        long size = weight(key, data);
+        if (size > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, data);
+        bytes += size - (previous == null ? 0 : weight(key, previous));
+        Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            Map.Entry<Key, byte[]> entry = eldest.next();
+            bytes -= weight(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long weight(Key key, byte[] data) {
+        return 2L * key.src().length() + data.length;
+    }
+
+    /**
+     * Scales the image to fit {@code maxWidth} × {@code maxHeight} (0 = unbounded) and returns the smallest
+     * encoding, or {@code null} if the bytes are not an image that ImageIO can read.
+     */
+    private byte[] optimize(byte[] source, int maxWidth, int maxHeight) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(source));
+        if (image == null) {
+            return null;
+        }
+        double scale = Math.min(maxWidth > 0 ? (double) maxWidth / image.getWidth() : 1,
+                maxHeight > 0 ? (double) maxHeight / image.getHeight() : 1);
+        boolean scaled = scale < 1;
+        int width = scaled ? Math.max(1, (int) Math.round(image.getWidth() * scale)) : image.getWidth();
+        int height = scaled ? Math.max(1, (int) Math.round(image.getHeight() * scale)) : image.getHeight();
+        int[] colours = twoColours(image);
+        if (colours != null) {
+            byte[] png = encodePng(lineArt(image, colours, width, height));
+            return scaled || png.length < source.length ? png : source;
+        }
+        if (scaled) {
+            image = scale(image, width, height);
+        }
+        byte[] best = scaled ? null : source;
+        byte[] png = encodePng(image);
+        if (best == null || png.length < best.length) {
+            best = png;
+        }
+        if (!image.getColorModel().hasAlpha()) {
+            byte[] jpeg = encodeJpeg(image);
+            if (jpeg.length < best.length) {
+                best = jpeg;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Halves the size step by step before the final bilinear pass, which keeps thin lines from aliasing
+     * when a large image shrinks a lot.
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    /**
+     * The colours of an image that has at most two, or {@code null}.
+     */
+    private static int[] twoColours(BufferedImage image) {
+        int[] row = new int[image.getWidth()];
+        int first = image.getRGB(0, 0);
+        int second = first;
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int argb : row) {
+                if (argb != first && argb != second) {
+                    if (second != first) {
+                        return null;
+                    }
+                    second = argb;
+                }
+            }
+        }
+        return new int[]{first, second};
+    }
+
+    /**
+     * Nearest-neighbour copy, since interpolation would blur the edges into grey; 1-bit if the colours are black
+     * and white. Other colour pairs stay RGB, as PDFBox writes no colour table for a two-colour palette.
+     */
+    private static BufferedImage lineArt(BufferedImage image, int[] colours, int width, int height) {
+        boolean blackAndWhite = Arrays.stream(colours).allMatch(argb -> argb == 0xFF000000 || argb == 0xFFFFFFFF);
+        int type = blackAndWhite ? BufferedImage.TYPE_BYTE_BINARY
+                : image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copy = new BufferedImage(width, height, type);
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, (int) ((y + 0.5) * image.getHeight() / height), row.length, 1, row, 0, row.length);
+            for (int x = 0; x < width; x++) {
+                copy.setRGB(x, y, row[(int) ((x + 0.5) * row.length / width)]);
+            }
+        }
+        return copy;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", os);
+        return os.toByteArray();
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_3BYTE_BGR
+                && image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            graphics.drawImage(image, 0, 0, null);
+            graphics.dispose();
+            image = rgb;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(os)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Device pixels needed for the element's {@code width} or {@code height}, taken from the attribute or the
+     * inline style, or for {@code fallbackInches} when neither is given in absolute units; 0 means unbounded.
+     */
+    private int targetPixels(Element img, String dimension, Pattern styleProperty, double fallbackInches) {
+        double inches = inches(img.getAttribute(dimension));
+        Matcher style = styleProperty.matcher(img.getAttribute("style"));
+        if (style.find()) {
+            inches = inches(style.group(1));
+        }
+        if (Double.isNaN(inches)) {
+            inches = fallbackInches;
+        }
+        return Double.isNaN(inches) ? 0 : (int) Math.ceil(inches * dpi);
+    }
+
+    private static Pattern styleProperty(String name) {
+        return Pattern.compile("(?:^|;)\\s*" + name + "\\s*:\\s*([^;]+)", Pattern.CASE_INSENSITIVE);
+    }
+
+    private static double inches(String length) {
+        Matcher matcher = LENGTH.matcher(length.trim());
+        if (!matcher.matches()) {
+            return Double.NaN;
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2) == null ? "px" : matcher.group(2).toLowerCase(Locale.ROOT);
+        return switch (unit) {
+            case "mm" -> value / 25.4;
+            case "cm" -> value / 2.54;
+            case "in" -> value;
+            case "pt" -> value / 72;
+            default -> value / CSS_PX_PER_INCH;
+        };
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * {@link CacheStats#size()} is the number of cached bytes.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, bytes);
+    }
+
+    /**
+     * Registers the optimizer for one render. Close the result once the PDF is written, which restores the
+     * {@code src} attributes of a DOM the caller may render again.
+     */
+    Rewrites applyTo(PdfRendererBuilder builder) {
+        Rewrites rewrites = new Rewrites();
+        builder.addDOMMutator(document -> optimize(document, rewrites));
+        builder.useProtocolsStreamImplementation(uri -> stream(rewrites.images.get(uri)), PROTOCOL);
+        return rewrites;
+    }
+
+    private static FSStream stream(byte[] data) {
+        return new FSStream() {
+            @Override
+            public InputStream getStream() {
+                return data == null ? null : new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public Reader getReader() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * The optimized images of one render and the {@code src} attributes they replaced.
+     */
+    static final class Rewrites implements AutoCloseable {
+
+        private final Map<String, byte[]> images = new HashMap<>();
+        private final Map<Element, String> sources = new IdentityHashMap<>();
+
+        @Override
+        public void close() {
+            sources.forEach((img, src) -> img.setAttribute("src", src));
+            sources.clear();
+        }
+    }
+
+    private record Key(String src, int maxWidth, int maxHeight) {
+    }
+
+    @FunctionalInterface
+    private interface ImageSource {
+        byte[] load() throws IOException;
+    }
+}
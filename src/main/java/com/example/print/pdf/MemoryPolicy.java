@@ -0,0 +1,119 @@
+package com.example.print.pdf;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides where PDFBox buffers the pages, fonts and images of a PDF while {@link PdfGenerator} writes it.
+ * Each document may keep up to {@code documentMemoryBytes} on the heap and moves anything beyond that into a
+ * scratch file. The heap share is reserved from a budget shared by all concurrent renders; once the budget is
+ * used up, further documents go to scratch files right away instead of waiting or running out of memory.
+ * Only PDFBox's buffers are covered: the layout of a document stays on the heap, so split very long reports
+ * into parts, e.g. with {@code StreamingReportGenerator}. Safe to share across threads.
+ */
+public class MemoryPolicy {
+
+    public static final long DEFAULT_DOCUMENT_MEMORY_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_TOTAL_MEMORY_BYTES = 256L * 1024 * 1024;
+
+    private static final MemoryPolicy IN_MEMORY = new MemoryPolicy(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long documentMemoryBytes;
+    private final long totalMemoryBytes;
+    private final AtomicLong available;
+    private final AtomicLong spilled = new AtomicLong();
+
+    /**
+     * Keeps whole documents on the heap without limit; the behaviour of {@link PdfGenerator} unless another
+     * policy is supplied.
+     */
+    public static MemoryPolicy inMemory() {
+        return IN_MEMORY;
+    }
+
+    /**
+     * Buffers every document in a scratch file, as print runs always do.
+     */
+    public static MemoryPolicy scratchFilesOnly() {
+        return new MemoryPolicy(0, 0);
+    }
+
+    /**
+     * Heap share of {@value #DEFAULT_DOCUMENT_MEMORY_BYTES} bytes per document out of
+     * {@value #DEFAULT_TOTAL_MEMORY_BYTES} bytes for all documents.
+     */
+    public static MemoryPolicy bounded() {
+        return new MemoryPolicy(DEFAULT_DOCUMENT_MEMORY_BYTES, DEFAULT_TOTAL_MEMORY_BYTES);
+    }
+
+    public MemoryPolicy(long documentMemoryBytes, long totalMemoryBytes) {
+        if (documentMemoryBytes < 0) {
+            throw new IllegalArgumentException("documentMemoryBytes must not be negative, was " + documentMemoryBytes);
+        }
+        if (totalMemoryBytes < documentMemoryBytes) {
+            throw new IllegalArgumentException("totalMemoryBytes must be at least documentMemoryBytes, was " + totalMemoryBytes);
+        }
+        this.documentMemoryBytes = documentMemoryBytes;
+        this.totalMemoryBytes = totalMemoryBytes;
+        this.available = new AtomicLong(totalMemoryBytes);
+    }
+
+    /**
+     * Heap bytes currently reserved by running documents.
+     */
+    public long reservedBytes() {
+        return totalMemoryBytes - available.get();
+    }
+
+    /**
+     * Number of documents so far that found the budget used up and were buffered in a scratch file only.
+     */
+    public long spilledDocuments() {
+        return spilled.get();
+    }
+
+    Reservation reserve() {
+        if (documentMemoryBytes == Long.MAX_VALUE) {
+            return new Reservation(IOUtils.createMemoryOnlyStreamCache(), 0);
+        }
+        if (documentMemoryBytes == 0) {
+            return new Reservation(IOUtils.createTempFileOnlyStreamCache(), 0);
+        }
+        long current;
+        do {
+            current = available.get();
+            if (current < documentMemoryBytes) {
+                spilled.incrementAndGet();
+                return new Reservation(IOUtils.createTempFileOnlyStreamCache(), 0);
+            }
+        } while (!available.compareAndSet(current, current - documentMemoryBytes));
+        return new Reservation(MemoryUsageSetting.setupMixed(documentMemoryBytes).streamCache, documentMemoryBytes);
+    }
+
+    /**
+     * Heap share held by one document; closing it returns the share to the budget.
+     */
+    final class Reservation implements AutoCloseable {
+
+        private final StreamCacheCreateFunction streamCache;
+        private long bytes;
+
+        private Reservation(StreamCacheCreateFunction streamCache, long bytes) {
+            this.streamCache = streamCache;
+            this.bytes = bytes;
+        }
+
+        StreamCacheCreateFunction streamCache() {
+            return streamCache;
+        }
+
+        @Override
+        public void close() {
+            available.addAndGet(bytes);
+            bytes = 0;
+        }
+    }
+}
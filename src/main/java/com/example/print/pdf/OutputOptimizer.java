@@ -0,0 +1,219 @@
+package com.example.print.pdf;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides how {@link PdfGenerator} writes a finished PDF. Objects go into compressed object streams with a
+ * cross-reference stream, as PDFBox does by default; turn that off only for readers older than PDF 1.5. With
+ * {@code deduplicateResources}, images, form XObjects and page contents that are byte-for-byte identical are
+ * written once and shared, which mostly pays off in print runs where every letter carries the same logo or QR
+ * code. The embedded fonts are usually the larger part of a small PDF; see {@link FontRegistry#withoutHinting()}.
+ * Safe to share across threads.
+ */
+public class OutputOptimizer {
+
+    private static final OutputOptimizer STANDARD = new OutputOptimizer(true, false);
+    private static final int MAX_DEPTH = 32;
+
+    private final boolean objectStreams;
+    private final boolean deduplicateResources;
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    /**
+     * Object and cross-reference streams, no deduplication; the behaviour of {@link PdfGenerator} unless another
+     * optimizer is supplied.
+     */
+    public static OutputOptimizer standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Object and cross-reference streams, identical resources written once.
+     */
+    public static OutputOptimizer deduplicating() {
+        return new OutputOptimizer(true, true);
+    }
+
+    public OutputOptimizer(boolean objectStreams, boolean deduplicateResources) {
+        this.objectStreams = objectStreams;
+        this.deduplicateResources = deduplicateResources;
+    }
+
+    /**
+     * Number of streams so far that were dropped because an identical one was already in the document.
+     */
+    public long deduplicatedStreams() {
+        return deduplicated.get();
+    }
+
+    void save(PDDocument document, OutputStream os) throws IOException {
+        if (deduplicateResources) {
+            deduplicate(document);
+        }
+        document.save(os, objectStreams ? CompressParameters.DEFAULT_COMPRESSION : CompressParameters.NO_COMPRESSION);
+    }
+
+    private void deduplicate(PDDocument document) throws IOException {
+        Deduplication run = new Deduplication();
+        for (PDPage page : document.getPages()) {
+            COSDictionary dictionary = page.getCOSObject();
+            COSBase contents = dictionary.getItem(COSName.CONTENTS);
+            if (contents != null && resolve(contents) instanceof COSStream) {
+                dictionary.setItem(COSName.CONTENTS, run.canonical(contents));
+            }
+            run.resources(dictionary.getCOSDictionary(COSName.RESOURCES));
+        }
+        deduplicated.addAndGet(run.dropped.size());
+    }
+
+    private static COSBase resolve(COSBase value) {
+        return value instanceof COSObject object ? object.getObject() : value;
+    }
+
+    /**
+     * Streams are keyed by a digest of their encoded bytes and a description of their dictionary, in which
+     * referenced streams such as soft masks appear by their own key. A stream whose dictionary nests deeper than
+     * {@link #MAX_DEPTH} has no key and is kept as it is.
+     */
+    private static final class Deduplication {
+
+        private final MessageDigest digest;
+        private final Map<COSStream, String> keys = new IdentityHashMap<>();
+        private final Map<String, COSBase> first = new HashMap<>();
+        private final Set<COSStream> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<COSDictionary> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Deduplication() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void resources(COSDictionary resources) throws IOException {
+            if (resources == null || !visited.add(resources)) {
+                return;
+            }
+            COSDictionary xObjects = resources.getCOSDictionary(COSName.XOBJECT);
+            if (xObjects == null) {
+                return;
+            }
+            for (COSName name : new ArrayList<>(xObjects.keySet())) {
+                COSBase item = xObjects.getItem(name);
+                if (resolve(item) instanceof COSStream) {
+                    COSBase canonical = canonical(item);
+                    xObjects.setItem(name, canonical);
+                    if (resolve(canonical) instanceof COSStream form) {
+                        resources(form.getCOSDictionary(COSName.RESOURCES));
+                    }
+                }
+            }
+        }
+
+        /**
+         * The first stream seen with the same key as {@code item}, as it was referenced then.
+         */
+        COSBase canonical(COSBase item) throws IOException {
+            COSStream stream = (COSStream) resolve(item);
+            String key = key(stream, 0);
+            if (key == null) {
+                return item;
+            }
+            COSBase canonical = first.putIfAbsent(key, item);
+            if (canonical == null) {
+                return item;
+            }
+            if (resolve(canonical) != stream) {
+                dropped.add(stream);
+            }
+            return canonical;
+        }
+
+        /**
+         * @return {@code null} if the dictionary nests deeper than {@link #MAX_DEPTH}, or is cyclic
+         */
+        private String key(COSStream stream, int depth) throws IOException {
+            String key = keys.get(stream);
+            if (key == null) {
+                byte[] buffer = new byte[8192];
+                try (InputStream raw = stream.createRawInputStream()) {
+                    for (int read; (read = raw.read(buffer)) > 0; ) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                StringBuilder description = new StringBuilder(HexFormat.of().formatHex(digest.digest()));
+                if (!entries(stream, description, depth)) {
+                    return null;
+                }
+                key = description.toString();
+                keys.put(stream, key);
+            }
+            return key;
+        }
+
+        private boolean entries(COSDictionary dictionary, StringBuilder out, int depth) throws IOException {
+            out.append("<<");
+            Map<String, COSBase> entries = new TreeMap<>();
+            dictionary.entrySet().forEach(entry -> entries.put(entry.getKey().getName(), entry.getValue()));
+            for (Map.Entry<String, COSBase> entry : entries.entrySet()) {
+                out.append('/').append(entry.getKey()).append(' ');
+                if (!describe(entry.getValue(), out, depth + 1)) {
+                    return false;
+                }
+            }
+            out.append(">>");
+            return true;
+        }
+
+        private boolean describe(COSBase value, StringBuilder out, int depth) throws IOException {
+            value = resolve(value);
+            if (depth > MAX_DEPTH) {
+                return false;
+            } else if (value instanceof COSStream stream) {
+                String key = key(stream, depth + 1);
+                if (key == null) {
+                    return false;
+                }
+                out.append("stream ").append(key);
+            } else if (value instanceof COSDictionary dictionary) {
+                return entries(dictionary, out, depth);
+            } else if (value instanceof COSArray array) {
+                out.append('[');
+                for (COSBase element : array) {
+                    if (!describe(element, out, depth + 1)) {
+                        return false;
+                    }
+                    out.append(' ');
+                }
+                out.append(']');
+            } else {
+                out.append(value).append(' ');
+            }
+            return true;
+        }
+    }
+}
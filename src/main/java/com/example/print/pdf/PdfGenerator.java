@@ -1,47 +1,369 @@
 package com.example.print.pdf;
 
+import com.example.print.cache.CacheStats;
+import com.example.print.metrics.RenderMetrics;
+import com.example.print.metrics.Stage;
+import com.example.print.qr.QrCodeGenerator;
+import com.openhtmltopdf.pdfboxout.PDFontSupplier;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.render.DefaultObjectDrawerFactory;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.w3c.dom.Document;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class PdfGenerator {
 
+    private final FontRegistry fontRegistry;
+    private final ResourceCache resourceCache;
+    private final ImageOptimizer imageOptimizer;
+    private final MemoryPolicy memoryPolicy;
+    private final OutputOptimizer outputOptimizer;
+    private final DefaultObjectDrawerFactory objectDrawers = new DefaultObjectDrawerFactory();
+
+    public PdfGenerator() {
+        this(FontRegistry.defaultRegistry());
+    }
+
+    public PdfGenerator(FontRegistry fontRegistry) {
+        this(fontRegistry, ResourceCache.defaultCache());
+    }
+
+    public PdfGenerator(FontRegistry fontRegistry, ResourceCache resourceCache) {
+        this(fontRegistry, resourceCache, null);
+    }
+
+    /**
+     * @param imageOptimizer downsamples and caches embedded data URI images; {@code null} embeds them as they are
+     */
+    public PdfGenerator(FontRegistry fontRegistry, ResourceCache resourceCache, ImageOptimizer imageOptimizer) {
+        this(fontRegistry, resourceCache, imageOptimizer, MemoryPolicy.inMemory());
+    }
+
+    /**
+     * @param memoryPolicy where PDFBox buffers each document while it is written
+     */
+    public PdfGenerator(FontRegistry fontRegistry, ResourceCache resourceCache, ImageOptimizer imageOptimizer,
+                        MemoryPolicy memoryPolicy) {
+        this(fontRegistry, resourceCache, imageOptimizer, memoryPolicy, OutputOptimizer.standard());
+    }
+
+    /**
+     * @param outputOptimizer how the finished PDF is written
+     */
+    public PdfGenerator(FontRegistry fontRegistry, ResourceCache resourceCache, ImageOptimizer imageOptimizer,
+                        MemoryPolicy memoryPolicy, OutputOptimizer outputOptimizer) {
+        this.fontRegistry = fontRegistry;
+        this.resourceCache = resourceCache;
+        this.imageOptimizer = imageOptimizer;
+        this.memoryPolicy = memoryPolicy;
+        this.outputOptimizer = outputOptimizer;
+        objectDrawers.registerDrawer(QrCodeGenerator.VECTOR_OBJECT_TYPE, new QrCodeObjectDrawer());
+    }
+
     public byte[] generatePdf(String html, String baseUri) {
-        File tempFontFile = null;
-        try {
-            tempFontFile = extractFontToTempFile();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generatePdf(html, baseUri, os);
+        return os.toByteArray();
+    }
+
+    /**
+     * Writes the PDF to {@code os} as it is produced. The stream is flushed but not closed.
+     */
+    public void generatePdf(String html, String baseUri, OutputStream os) {
+        generatePdf(html, baseUri, os, null);
+    }
+
+    /**
+     * Like {@link #generatePdf(String, String, OutputStream)}, with the stages reported to
+     * {@link RenderMetrics} tagged with {@code templateName}, as they are for a DOM from {@code renderDocument}.
+     */
+    public void generatePdf(String html, String baseUri, OutputStream os, String templateName) {
+        generate(builder -> builder.withHtmlContent(html, baseUri), templateName, os, null);
+    }
 
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
+    /**
+     * Renders an already built DOM, e.g. from {@code ThymeleafRenderer.renderDocument}, skipping the HTML parse.
+     */
+    public byte[] generatePdf(Document document, String baseUri) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generatePdf(document, baseUri, os);
+        return os.toByteArray();
+    }
+
+    public void generatePdf(Document document, String baseUri, OutputStream os) {
+        generatePdf(document, baseUri, os, null);
+    }
+
+    /**
+     * Like {@link #generatePdf(Document, String, OutputStream)}, but polls {@code cancelled} between stages and
+     * while laying out text, and throws a {@link java.util.concurrent.CancellationException} once it returns true.
+     */
+    public void generatePdf(Document document, String baseUri, OutputStream os, BooleanSupplier cancelled) {
+        generate(builder -> builder.withW3cDocument(document, baseUri),
+                (String) document.getUserData(RenderMetrics.TEMPLATE_KEY), os, cancelled);
+    }
+
+    private void generate(Consumer<PdfRendererBuilder> content, String template, OutputStream os,
+                          BooleanSupplier cancelled) {
+        RenderMetrics.Timer timer = RenderMetrics.start();
+        try (MemoryPolicy.Reservation reservation = memoryPolicy.reserve();
+             PDDocument document = new PDDocument(reservation.streamCache())) {
             PdfRendererBuilder builder = new PdfRendererBuilder();
             builder.useFastMode();
-            builder.useFont(tempFontFile, "DejaVuSans");
-            builder.withHtmlContent(html, baseUri);
-            builder.toStream(os);
-            builder.run();
+            builder.usePDDocument(document);
+            fontRegistry.applyTo(builder);
+            resourceCache.applyTo(builder);
+            ImageOptimizer.Rewrites images = imageOptimizer == null ? null : imageOptimizer.applyTo(builder);
+            builder.useObjectDrawerFactory(objectDrawers);
+            if (cancelled != null) {
+                builder.useUnicodeLineBreaker(new CancellableLineBreaker(cancelled));
+            }
+            content.accept(builder);
+            try (images; PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+                if (timer != null) {
+                    timer.stop(template, Stage.PARSE);
+                }
+                CancellableLineBreaker.check(cancelled);
+                renderer.layout();
+                if (timer != null) {
+                    timer.stop(template, Stage.LAYOUT);
+                }
+                CancellableLineBreaker.check(cancelled);
+                int pages = renderer.getRootBox().getLayer().getPages().size();
+                renderer.createPDFWithoutClosing();
+                CountingOutputStream counted = new CountingOutputStream(os);
+                outputOptimizer.save(document, counted);
+                os.flush();
+                if (timer != null) {
+                    timer.stop(template, Stage.OUTPUT);
+                    timer.documentCompleted(template, pages, counted.count());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate PDF", e);
+        }
+    }
+
+    /**
+     * Writes the PDF to {@code channel}. The channel is not closed.
+     */
+    public void generatePdf(String html, String baseUri, WritableByteChannel channel) {
+        generatePdf(html, baseUri, new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Writes the PDF to {@code target}, replacing an existing file. The PDF is written to {@code <target>.part} and
+     * moved into place once complete, so a failure leaves no truncated file behind.
+     */
+    public void generatePdf(String html, String baseUri, Path target) {
+        writeFile(target, os -> generatePdf(html, baseUri, os), "PDF");
+    }
+
+    /**
+     * Renders every HTML document into one PDF, in order, and writes it to {@code os} (flushed, not closed).
+     * Fonts are embedded once for the whole run, and only those the documents use. Page content streams are
+     * kept in a scratch file rather than on the heap, but the page objects themselves stay on the heap until the
+     * PDF is saved, so memory still grows slowly with the number of pages.
+     */
+    public void generatePrintRun(Iterator<String> htmlDocuments, String baseUri, OutputStream os) {
+        generatePrintRun(htmlDocuments, baseUri, os, null);
+    }
+
+    /**
+     * Like {@link #generatePrintRun(Iterator, String, OutputStream)}, for documents of one template: stages and
+     * the finished run are reported to {@link RenderMetrics} tagged with {@code templateName}.
+     */
+    public void generatePrintRun(Iterator<String> htmlDocuments, String baseUri, OutputStream os, String templateName) {
+        try {
+            append(htmlDocuments, (builder, html) -> builder.withHtmlContent(html, baseUri), templateName, false, os);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate print run", e);
+        }
+    }
 
-            return os.toByteArray();
+    /**
+     * Lays out the parts of one long document, e.g. chunks of a report, one after another into a single PDF.
+     * Unlike a print run, page numbers continue across parts, so {@code counter(page)} counts through the whole
+     * PDF; {@code counter(pages)} only knows the pages of the current part. Each part starts on a new page.
+     */
+    public void generateContinuous(Iterator<Document> parts, String baseUri, OutputStream os) {
+        try {
+            append(parts, (builder, document) -> builder.withW3cDocument(document, baseUri), null, true, os);
         } catch (IOException e) {
             throw new RuntimeException("Failed to generate PDF", e);
-        } finally {
-            if (tempFontFile != null && tempFontFile.exists()) {
-                tempFontFile.delete();
+        }
+    }
+
+    /**
+     * @param templateName template of HTML sources; a DOM source carries its own. The finished PDF is reported
+     *                     under the template all sources share, or {@code null} if they differ
+     */
+    private <T> void append(Iterator<T> sources, BiConsumer<PdfRendererBuilder, T> content, String templateName,
+                            boolean continuePageNumbers, OutputStream os) throws IOException {
+        try (PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+            RenderMetrics.Timer timer = RenderMetrics.start();
+            Map<String, PDFontSupplier> fonts = fontRegistry.suppliersFor(document);
+            String runTemplate = templateName;
+            String template = templateName;
+            for (boolean first = true; sources.hasNext(); first = false) {
+                T source = sources.next();
+                if (timer != null) {
+                    if (first) {
+                        timer.restart();
+                    } else {
+                        timer.resume();
+                        timer.stop(template, Stage.OUTPUT);
+                    }
+                }
+                template = source instanceof Document dom
+                        ? (String) dom.getUserData(RenderMetrics.TEMPLATE_KEY) : templateName;
+                runTemplate = first || Objects.equals(runTemplate, template) ? template : null;
+                PdfRendererBuilder builder = new PdfRendererBuilder();
+                builder.useFastMode();
+                builder.usePDDocument(document);
+                fontRegistry.applyTo(builder, fonts);
+                resourceCache.applyTo(builder);
+                ImageOptimizer.Rewrites images = imageOptimizer == null ? null : imageOptimizer.applyTo(builder);
+                builder.useObjectDrawerFactory(objectDrawers);
+                if (continuePageNumbers) {
+                    builder.useInitialPageNumber(document.getNumberOfPages() + 1);
+                }
+                content.accept(builder, source);
+                try (images; PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+                    if (timer != null) {
+                        timer.stop(template, Stage.PARSE);
+                    }
+                    renderer.layout();
+                    if (timer != null) {
+                        timer.stop(template, Stage.LAYOUT);
+                    }
+                    renderer.createPDFWithoutClosing();
+                    if (timer != null) {
+                        // OUTPUT of this document is reported once the next one starts or, for the last
+                        // document, after the save, so that each document reports one OUTPUT sample
+                        timer.pause();
+                    }
+                }
+            }
+            if (timer != null) {
+                timer.resume();
+            }
+            CountingOutputStream counted = new CountingOutputStream(os);
+            outputOptimizer.save(document, counted);
+            os.flush();
+            if (timer != null) {
+                timer.stop(template, Stage.OUTPUT);
+                timer.documentCompleted(runTemplate, document.getNumberOfPages(), counted.count());
             }
         }
     }
 
-    private File extractFontToTempFile() throws IOException {
-        try (InputStream fontStream = getClass().getClassLoader().getResourceAsStream("fonts/DejaVuSans.ttf")) {
-            if (fontStream == null) {
-                throw new IOException("Font file not found on classpath: fonts/DejaVuSans.ttf");
+    /**
+     * Writes the print run to {@code target} like {@link #generatePdf(String, String, Path)}: complete or not at all.
+     */
+    public void generatePrintRun(Iterator<String> htmlDocuments, String baseUri, Path target) {
+        writeFile(target, os -> generatePrintRun(htmlDocuments, baseUri, os), "print run");
+    }
+
+    private static void writeFile(Path target, Consumer<OutputStream> content, String description) {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(part))) {
+                content.accept(os);
+            }
+            try {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
             }
-            File tempFile = Files.createTempFile("DejaVuSans", ".ttf").toFile();
-            tempFile.deleteOnExit();
-            Files.copy(fontStream, tempFile.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            return tempFile;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + description + " to " + target, e);
+        } finally {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                // best effort
+            }
+        }
+    }
+
+    public CacheStats resourceCacheStats() {
+        return resourceCache.stats();
+    }
+
+    /**
+     * Drops one cached stylesheet, image or font, e.g. after the file was edited.
+     */
+    public void invalidateResource(String uri) {
+        resourceCache.invalidate(uri);
+    }
+
+    /**
+     * Lays out a page with every registered font, a vector QR code and an embedded PNG and discards it, so that
+     * openhtmltopdf, PDFBox, ZXing and ImageIO are loaded and font metrics are cached before the first document.
+     * Call it once at startup; {@code TemplateRegistry.warmUp()} does the same for templates.
+     */
+    public void warmUp() {
+        StringBuilder html = new StringBuilder("<html><head></head><body>");
+        for (String family : fontRegistry.families()) {
+            html.append("<p style=\"font-family: '").append(family).append("'\">Äöü ß € <b>Äöü ß €</b></p>");
+        }
+        html.append("<object type=\"").append(QrCodeGenerator.VECTOR_OBJECT_TYPE)
+                .append("\" data=\"warm-up\" style=\"width: 20mm; height: 20mm;\"></object>")
+                .append("<img src=\"").append(QrCodeGenerator.generateDataUri("warm-up", 64))
+                .append("\" style=\"width: 20mm; height: 20mm;\"/></body></html>");
+        generatePdf(html.toString(), null, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Counts the bytes written, and keeps PDFBox from closing the caller's stream when it finishes the save.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        long count() {
+            return count;
         }
     }
 }
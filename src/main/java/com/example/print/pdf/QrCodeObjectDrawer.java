@@ -0,0 +1,117 @@
+package com.example.print.pdf;
+
+import com.example.print.qr.QrCodeGenerator;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.openhtmltopdf.extend.FSObjectDrawer;
+import com.openhtmltopdf.extend.OutputDevice;
+import com.openhtmltopdf.pdfboxout.PdfBoxOutputDevice;
+import com.openhtmltopdf.render.RenderingContext;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Draws {@code <object type="application/x-qrcode" data="..."/>} as a vector form XObject: one dashed stroke per
+ * row of modules, in module units, scaled onto the object's box and Flate-compressed. The QR code stays sharp at
+ * any resolution and no image is encoded or embedded. The form is about as large as the 1-bit PNG of the raster
+ * path, not smaller, so templates keep the {@code <img>} as the default.
+ * An optional {@code data-error-correction} attribute selects the level (L, M, Q or H); any other value means L.
+ * An object without data, or with more than a QR code holds, is left empty so the rest of the PDF still renders.
+ */
+class QrCodeObjectDrawer implements FSObjectDrawer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QrCodeObjectDrawer.class);
+    private static final float PIXELS_TO_POINTS = 0.75f;
+
+    @Override
+    public Map<Shape, String> drawObject(Element e, double x, double y, double width, double height,
+                                         OutputDevice outputDevice, RenderingContext ctx, int dotsPerPixel) {
+        String data = e.getAttribute("data");
+        if (data.isBlank()) {
+            LOG.warn("Skipping QR code without data");
+            return null;
+        }
+        BitMatrix matrix;
+        try {
+            matrix = QrCodeGenerator.encodeModules(data, errorCorrection(e.getAttribute("data-error-correction")));
+        } catch (RuntimeException ex) {
+            LOG.warn("Skipping QR code that cannot be encoded ({} characters)", data.length(), ex);
+            return null;
+        }
+        int modules = matrix.getWidth();
+        PdfBoxOutputDevice pdfOutput = (PdfBoxOutputDevice) outputDevice;
+
+        int side = (int) Math.min(width, height);
+        float dotsPerPoint = dotsPerPixel / PIXELS_TO_POINTS;
+
+        PDFormXObject form = new PDFormXObject(pdfOutput.getWriter());
+        form.setBBox(new PDRectangle(modules, modules));
+        form.setMatrix(AffineTransform.getScaleInstance(side / dotsPerPoint / modules, side / dotsPerPoint / modules));
+        try (OutputStream os = form.getContentStream().createOutputStream(COSName.FLATE_DECODE)) {
+            os.write(modulePath(matrix).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to draw QR code", ex);
+        }
+
+        pdfOutput.drawPdfAsImage(form, new Rectangle((int) x, (int) y, side, side), side, side);
+        return null;
+    }
+
+    private static ErrorCorrectionLevel errorCorrection(String level) {
+        return switch (level.trim().toUpperCase(Locale.ROOT)) {
+            case "M" -> ErrorCorrectionLevel.M;
+            case "Q" -> ErrorCorrectionLevel.Q;
+            case "H" -> ErrorCorrectionLevel.H;
+            default -> ErrorCorrectionLevel.L;
+        };
+    }
+
+    /**
+     * Strokes each row as one line a module wide whose dash pattern draws the row's runs of dark modules. The
+     * pattern is as long as the row, ending with the gap that wraps round to the first run; the phase starts the
+     * line in that gap, so no dash has length zero.
+     */
+    private static String modulePath(BitMatrix matrix) {
+        int modules = matrix.getWidth();
+        // PDF y axis points up, QR rows run top to bottom: start above the first row and step down
+        StringBuilder path = new StringBuilder(modules * modules)
+                .append("0 G 1 w 0 J 1 0 0 1 0 ").append(modules).append(" cm\n");
+        int[] runs = new int[modules + 1];
+        for (int row = 0; row < modules; row++) {
+            path.append("1 0 0 1 0 -1 cm\n");
+            int count = 0;
+            for (int column = 0; column < modules; column++) {
+                if (matrix.get(column, row) != (count % 2 == 1)) {
+                    runs[count++] = column;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (count % 2 == 1) {
+                runs[count++] = modules;
+            }
+            path.append('[');
+            for (int i = 0; i < count; i += 2) {
+                int nextStart = i + 2 < count ? runs[i + 2] : modules + runs[0];
+                path.append(runs[i + 1] - runs[i]).append(' ').append(nextStart - runs[i + 1]).append(' ');
+            }
+            path.setLength(path.length() - 1);
+            path.append("] ").append(modules - runs[0]).append(" d 0 .5 m ").append(modules).append(" .5 l S\n");
+        }
+        return path.toString();
+    }
+}
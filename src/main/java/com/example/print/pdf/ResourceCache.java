@@ -0,0 +1,142 @@
+package com.example.print.pdf;
+
+import com.example.print.cache.CacheStats;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps stylesheets, images and fonts loaded from {@code file:} and {@code jar:} URIs in memory, so that
+ * repeated {@link PdfGenerator} runs read each linked resource only once. Bounded by total bytes with LRU
+ * eviction; resources that cannot be read are not cached. Safe to share across threads.
+ */
+public class ResourceCache implements FSStreamFactory {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final String[] PROTOCOLS = {"file", "jar"};
+    private static final ResourceCache DEFAULT = new ResourceCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation;
+
+    /**
+     * Returns the process-wide cache used by {@link PdfGenerator} unless another one is supplied.
+     */
+    public static ResourceCache defaultCache() {
+        return DEFAULT;
+    }
+
+    public ResourceCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1, was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public FSStream getUrl(String uri) {
+        byte[] data = get(uri);
+        return new FSStream() {
+            @Override
+            public InputStream getStream() {
+                return data == null ? null : new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public Reader getReader() {
+                return data == null ? null : new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Returns the resource's bytes, reading them outside the lock on a miss, or {@code null} if it cannot be read.
+     * A load that overlaps an invalidation is returned but not cached, as it may have read the old file.
+     */
+    byte[] get(String uri) {
+        long loadGeneration;
+        synchronized (this) {
+            byte[] cached = entries.get(uri);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        byte[] loaded;
+        try {
+            loaded = read(uri);
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        put(uri, loaded, loadGeneration);
+        return loaded;
+    }
+
+    byte[] read(String uri) throws IOException, URISyntaxException {
+        try (InputStream in = new URI(uri).toURL().openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private synchronized void put(String uri, byte[] data, long loadGeneration) {
+        if (data.length > maxBytes || loadGeneration != generation) {
+            return;
+        }
+        byte[] previous = entries.put(uri, data);
+        bytes += data.length - (previous == null ? 0 : previous.length);
+        Iterator<byte[]> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops one resource, e.g. after a stylesheet was edited during development.
+     */
+    public synchronized void invalidate(String uri) {
+        generation++;
+        byte[] removed = entries.remove(uri);
+        if (removed != null) {
+            bytes -= removed.length;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * {@link CacheStats#size()} is the number of cached bytes.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, bytes);
+    }
+
+    void applyTo(PdfRendererBuilder builder) {
+        builder.useProtocolsStreamImplementation(this, PROTOCOLS);
+    }
+}
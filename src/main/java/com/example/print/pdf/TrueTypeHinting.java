@@ -0,0 +1,183 @@
+package com.example.print.pdf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the hinting programs from a TrueType font: the {@code fpgm}, {@code prep} and {@code cvt } tables, the
+ * device metrics that depend on them and the instructions of every glyph. Hinting only snaps outlines to the
+ * pixel grid of small screens; print and PDF viewers at normal zoom do not need it, and in DejaVuSans it is more
+ * than half of every embedded subset. Outlines, metrics and character mapping stay as they are. Fonts without a
+ * {@code glyf} table (CFF-based OpenType, collections) are returned unchanged.
+ */
+final class TrueTypeHinting {
+
+    private static final Set<String> HINTING_TABLES = Set.of("fpgm", "prep", "cvt ", "hdmx", "LTSH", "VDMX", "DSIG");
+
+    private static final int ARG_1_AND_2_ARE_WORDS = 0x0001;
+    private static final int WE_HAVE_A_SCALE = 0x0008;
+    private static final int MORE_COMPONENTS = 0x0020;
+    private static final int WE_HAVE_AN_X_AND_Y_SCALE = 0x0040;
+    private static final int WE_HAVE_A_TWO_BY_TWO = 0x0080;
+    private static final int WE_HAVE_INSTRUCTIONS = 0x0100;
+
+    private TrueTypeHinting() {
+    }
+
+    static byte[] strip(byte[] font) {
+        ByteBuffer in = ByteBuffer.wrap(font);
+        int version = in.getInt(0);
+        if (version != 0x00010000 && version != 0x74727565) { // 'true'
+            return font;
+        }
+        List<Table> tables = new ArrayList<>();
+        int numTables = in.getShort(4) & 0xFFFF;
+        for (int i = 0; i < numTables; i++) {
+            int record = 12 + 16 * i;
+            byte[] tag = new byte[4];
+            in.get(record, tag);
+            tables.add(new Table(new String(tag, StandardCharsets.ISO_8859_1),
+                    in.getInt(record + 8), in.getInt(record + 12)));
+        }
+        Table head = find(tables, "head");
+        Table maxp = find(tables, "maxp");
+        Table loca = find(tables, "loca");
+        Table glyf = find(tables, "glyf");
+        if (head == null || maxp == null || loca == null || glyf == null) {
+            return font;
+        }
+        int numGlyphs = in.getShort(maxp.offset + 4) & 0xFFFF;
+        boolean longOffsets = in.getShort(head.offset + 50) != 0;
+
+        ByteBuffer newGlyf = ByteBuffer.allocate(glyf.length + 4 * numGlyphs);
+        ByteBuffer newLoca = ByteBuffer.allocate(4 * (numGlyphs + 1));
+        for (int g = 0; g < numGlyphs; g++) {
+            newLoca.putInt(newGlyf.position());
+            int start = glyphOffset(in, loca, g, longOffsets);
+            int end = glyphOffset(in, loca, g + 1, longOffsets);
+            if (end > start) {
+                writeGlyph(in, glyf.offset + start, end - start, newGlyf);
+                while (newGlyf.position() % 4 != 0) {
+                    newGlyf.put((byte) 0);
+                }
+            }
+        }
+        newLoca.putInt(newGlyf.position());
+
+        List<Table> kept = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        for (Table table : tables) {
+            if (HINTING_TABLES.contains(table.tag)) {
+                continue;
+            }
+            byte[] bytes = switch (table.tag) {
+                case "glyf" -> Arrays.copyOf(newGlyf.array(), newGlyf.position());
+                case "loca" -> newLoca.array();
+                default -> Arrays.copyOfRange(font, table.offset, table.offset + table.length);
+            };
+            if (table.tag.equals("head")) {
+                ByteBuffer.wrap(bytes).putInt(8, 0).putShort(50, (short) 1); // checkSumAdjustment, long loca
+            } else if (table.tag.equals("maxp") && bytes.length >= 28) {
+                ByteBuffer.wrap(bytes).putShort(26, (short) 0); // maxSizeOfInstructions
+            }
+            kept.add(table);
+            data.add(bytes);
+        }
+        return write(version, kept, data);
+    }
+
+    private static int glyphOffset(ByteBuffer in, Table loca, int glyph, boolean longOffsets) {
+        return longOffsets ? in.getInt(loca.offset + 4 * glyph) : (in.getShort(loca.offset + 2 * glyph) & 0xFFFF) * 2;
+    }
+
+    /**
+     * Copies one glyph without its instructions.
+     */
+    private static void writeGlyph(ByteBuffer in, int offset, int length, ByteBuffer out) {
+        short contours = in.getShort(offset);
+        if (contours >= 0) {
+            int instructionLength = offset + 10 + 2 * contours;
+            int instructions = in.getShort(instructionLength) & 0xFFFF;
+            out.put(in.array(), offset, instructionLength - offset);
+            out.putShort((short) 0);
+            int rest = instructionLength + 2 + instructions;
+            out.put(in.array(), rest, offset + length - rest);
+            return;
+        }
+        out.put(in.array(), offset, 10);
+        int position = offset + 10;
+        int flags;
+        do {
+            flags = in.getShort(position) & 0xFFFF;
+            int size = 4 + ((flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 4 : 2);
+            if ((flags & WE_HAVE_A_SCALE) != 0) {
+                size += 2;
+            } else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+                size += 4;
+            } else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0) {
+                size += 8;
+            }
+            out.putShort((short) (flags & ~WE_HAVE_INSTRUCTIONS));
+            out.put(in.array(), position + 2, size - 2);
+            position += size;
+        } while ((flags & MORE_COMPONENTS) != 0);
+    }
+
+    private static byte[] write(int version, List<Table> tables, List<byte[]> data) {
+        int numTables = tables.size();
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+        int searchRange = 16 << entrySelector;
+        int size = 12 + 16 * numTables;
+        for (byte[] bytes : data) {
+            size += (bytes.length + 3) & ~3;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(version).putShort((short) numTables).putShort((short) searchRange)
+                .putShort((short) entrySelector).putShort((short) (numTables * 16 - searchRange));
+        int offset = 12 + 16 * numTables;
+        int headOffset = -1;
+        for (int i = 0; i < numTables; i++) {
+            byte[] bytes = data.get(i);
+            out.put(tables.get(i).tag.getBytes(StandardCharsets.ISO_8859_1))
+                    .putInt(checksum(bytes)).putInt(offset).putInt(bytes.length);
+            out.put(offset, bytes);
+            if (tables.get(i).tag.equals("head")) {
+                headOffset = offset;
+            }
+            offset += (bytes.length + 3) & ~3;
+        }
+        byte[] result = out.array();
+        if (headOffset >= 0) {
+            out.putInt(headOffset + 8, 0xB1B0AFBA - checksum(result));
+        }
+        return result;
+    }
+
+    private static int checksum(byte[] bytes) {
+        int sum = 0;
+        for (int i = 0; i < bytes.length; i += 4) {
+            int word = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (i + j < bytes.length ? bytes[i + j] & 0xFF : 0);
+            }
+            sum += word;
+        }
+        return sum;
+    }
+
+    private static Table find(List<Table> tables, String tag) {
+        for (Table table : tables) {
+            if (table.tag.equals(tag)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private record Table(String tag, int offset, int length) {
+    }
+}
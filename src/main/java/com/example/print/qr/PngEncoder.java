@@ -0,0 +1,75 @@
+package com.example.print.qr;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a {@link BitMatrix} as a 1-bit grayscale PNG without going through AWT or ImageIO.
+ */
+final class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    private PngEncoder() {
+    }
+
+    static byte[] encode(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+
+        byte[] raw = new byte[(rowBytes + 1) * height];
+        for (int y = 0; y < height; y++) {
+            int offset = y * (rowBytes + 1) + 1;
+            for (int x = 0; x < width; x++) {
+                if (!matrix.get(x, y)) {
+                    raw[offset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(raw.length / 8 + 128);
+        png.writeBytes(SIGNATURE);
+        writeChunk(png, "IHDR", ByteBuffer.allocate(13)
+                .putInt(width).putInt(height)
+                .put((byte) 1)  // bit depth
+                .put((byte) 0)  // grayscale
+                .put((byte) 0).put((byte) 0).put((byte) 0)
+                .array());
+        writeChunk(png, "IDAT", deflate(raw));
+        writeChunk(png, "IEND", new byte[0]);
+        return png.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 8 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        png.writeBytes(ByteBuffer.allocate(4).putInt(data.length).array());
+        png.writeBytes(typeBytes);
+        png.writeBytes(data);
+        png.writeBytes(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+}
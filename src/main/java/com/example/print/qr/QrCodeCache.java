@@ -0,0 +1,67 @@
+package com.example.print.qr;
+
+import com.example.print.cache.CacheStats;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of QR code data URIs keyed by text, size and error-correction level.
+ */
+public class QrCodeCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private record Key(String text, int size, ErrorCorrectionLevel level) {
+    }
+
+    private final int maxEntries;
+    private final Map<Key, String> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public QrCodeCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1, was " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached data URI or computes it outside the lock; concurrent misses for one key may both compute.
+     */
+    public String get(String text, int size, ErrorCorrectionLevel level, Supplier<String> dataUri) {
+        Key key = new Key(text, size, level);
+        synchronized (this) {
+            String cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        String computed = dataUri.get();
+        synchronized (this) {
+            entries.put(key, computed);
+            if (entries.size() > maxEntries) {
+                var eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return computed;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+}
@@ -1,31 +1,69 @@
 package com.example.print.qr;
 
+import com.example.print.cache.CacheStats;
+import com.example.print.metrics.RenderMetrics;
+import com.example.print.metrics.Stage;
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Base64;
+import java.util.Map;
 
 public class QrCodeGenerator {
 
+    /**
+     * Object type for vector QR codes: {@code <object type="application/x-qrcode" data="https://..."/>}.
+     */
+    public static final String VECTOR_OBJECT_TYPE = "application/x-qrcode";
+
+    private static final QrCodeCache CACHE = new QrCodeCache(QrCodeCache.DEFAULT_MAX_ENTRIES);
+
     public static String generateDataUri(String text, int size) {
+        return generateDataUri(text, size, ErrorCorrectionLevel.L);
+    }
+
+    public static String generateDataUri(String text, int size, ErrorCorrectionLevel level) {
+        RenderMetrics.Timer timer = RenderMetrics.start();
+        String dataUri = CACHE.get(text, size, level, () -> encodeDataUri(text, size, level));
+        if (timer != null) {
+            timer.stop(null, Stage.QR_CODE);
+        }
+        return dataUri;
+    }
+
+    /**
+     * Encodes {@code text} at one matrix cell per module, including the quiet zone, for vector drawing.
+     */
+    public static BitMatrix encodeModules(String text, ErrorCorrectionLevel level) {
         try {
-            QRCodeWriter writer = new QRCodeWriter();
-            BitMatrix matrix = writer.encode(text, BarcodeFormat.QR_CODE, size, size);
-            BufferedImage image = MatrixToImageWriter.toBufferedImage(matrix);
+            return new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0,
+                    Map.of(EncodeHintType.ERROR_CORRECTION, level));
+        } catch (WriterException e) {
+            throw new RuntimeException("Failed to generate QR code", e);
+        }
+    }
+
+    public static CacheStats cacheStats() {
+        return CACHE.stats();
+    }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "PNG", baos);
-            byte[] bytes = baos.toByteArray();
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static String encodeDataUri(String text, int size, ErrorCorrectionLevel level) {
+        try {
+            QRCodeWriter writer = new QRCodeWriter();
+            BitMatrix matrix = writer.encode(text, BarcodeFormat.QR_CODE, size, size,
+                    Map.of(EncodeHintType.ERROR_CORRECTION, level));
+            byte[] bytes = PngEncoder.encode(matrix);
 
             return "data:image/png;base64," + Base64.getEncoder().encodeToString(bytes);
-        } catch (WriterException | IOException e) {
+        } catch (WriterException e) {
             throw new RuntimeException("Failed to generate QR code", e);
         }
     }
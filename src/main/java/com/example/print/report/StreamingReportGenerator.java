@@ -0,0 +1,113 @@
+package com.example.print.report;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.w3c.dom.Document;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Renders reports with any number of rows, e.g. statements with tens of thousands of line items. Rows are
+ * pulled from an iterator one chunk at a time; each chunk is rendered and laid out on its own and appended to
+ * one PDF whose page contents live in a scratch file. Only the rows, DOM and layout of the current chunk are held
+ * at once; the page objects of the PDF stay on the heap until it is saved, so heap use still grows with the page
+ * count, though far more slowly than when laying out all rows at once.
+ * <p>
+ * Besides the variables of the model, the template sees {@code rows} (the rows of the current chunk),
+ * {@code firstRowNumber} (1-based), {@code chunkIndex}, {@code firstChunk} and {@code lastChunk}. Render
+ * report headers only in the first chunk and totals only in the last. Each chunk starts on a new page, so a
+ * chunk size that fills whole pages avoids half-empty pages. Page numbers continue across chunks.
+ */
+public class StreamingReportGenerator {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final ThymeleafRenderer renderer;
+    private final PdfGenerator pdfGenerator;
+    private final String baseUri;
+    private final int chunkSize;
+
+    public StreamingReportGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri) {
+        this(renderer, pdfGenerator, baseUri, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StreamingReportGenerator(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1, was " + chunkSize);
+        }
+        this.renderer = renderer;
+        this.pdfGenerator = pdfGenerator;
+        this.baseUri = baseUri;
+        this.chunkSize = chunkSize;
+    }
+
+    public void generate(String templateName, Map<String, Object> model, Stream<?> rows, OutputStream os) {
+        generate(templateName, model, rows.iterator(), os);
+    }
+
+    /**
+     * Writes the report to {@code os} (flushed, not closed).
+     */
+    public void generate(String templateName, Map<String, Object> model, Iterator<?> rows, OutputStream os) {
+        pdfGenerator.generateContinuous(new Chunks(templateName, model, rows), baseUri, os);
+    }
+
+    public void generate(String templateName, Map<String, Object> model, Iterator<?> rows, Path target) {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(target))) {
+            generate(templateName, model, rows, os);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write report to " + target, e);
+        }
+    }
+
+    private final class Chunks implements Iterator<Document> {
+
+        private final String templateName;
+        private final Map<String, Object> model;
+        private final Iterator<?> rows;
+        private int chunkIndex;
+        private long nextRowNumber = 1;
+
+        Chunks(String templateName, Map<String, Object> model, Iterator<?> rows) {
+            this.templateName = templateName;
+            this.model = model;
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return chunkIndex == 0 || rows.hasNext();
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && rows.hasNext()) {
+                chunk.add(rows.next());
+            }
+            Map<String, Object> variables = new HashMap<>(model);
+            variables.put("rows", chunk);
+            variables.put("firstRowNumber", nextRowNumber);
+            variables.put("chunkIndex", chunkIndex);
+            variables.put("firstChunk", chunkIndex == 0);
+            variables.put("lastChunk", !rows.hasNext());
+            chunkIndex++;
+            nextRowNumber += chunk.size();
+            return renderer.renderDocument(templateName, variables);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.print.template;
+
+import com.example.print.cache.CacheStats;
+import org.thymeleaf.cache.AbstractCacheManager;
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thymeleaf's template and expression caches, bounded and evicted in insertion order like {@code StandardCache},
+ * but counting evictions where they happen. Entries dropped by {@code clearTemplateCache} or
+ * {@code clearTemplateCacheFor} are not evictions, so the figures stay exact while other threads render.
+ */
+final class CountingCacheManager extends AbstractCacheManager {
+
+    private final int templateCacheSize;
+
+    /**
+     * @param templateCacheSize maximum number of parsed templates; negative for no limit
+     */
+    CountingCacheManager(int templateCacheSize) {
+        this.templateCacheSize = templateCacheSize;
+    }
+
+    @Override
+    protected ICache<TemplateCacheKey, TemplateModel> initializeTemplateCache() {
+        return new CountingCache<>(templateCacheSize, StandardCacheManager.DEFAULT_TEMPLATE_CACHE_VALIDITY_CHECKER);
+    }
+
+    @Override
+    protected ICache<ExpressionCacheKey, Object> initializeExpressionCache() {
+        return new CountingCache<>(StandardCacheManager.DEFAULT_EXPRESSION_CACHE_MAX_SIZE,
+                StandardCacheManager.DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER);
+    }
+
+    CacheStats templateCacheStats() {
+        return ((CountingCache<?, ?>) getTemplateCache()).stats();
+    }
+
+    CacheStats expressionCacheStats() {
+        return ((CountingCache<?, ?>) getExpressionCache()).stats();
+    }
+
+    /**
+     * Reads do not lock; puts and removals do, to keep the insertion order in step with the entries.
+     */
+    static final class CountingCache<K, V> implements ICache<K, V> {
+
+        private record Entry<V>(V value, long created) {
+        }
+
+        private final int maxSize;
+        private final ICacheEntryValidityChecker<? super K, ? super V> validityChecker;
+        private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+        private final ArrayDeque<K> insertionOrder = new ArrayDeque<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private long evictions;
+
+        CountingCache(int maxSize, ICacheEntryValidityChecker<? super K, ? super V> validityChecker) {
+            this.maxSize = maxSize;
+            this.validityChecker = validityChecker;
+        }
+
+        @Override
+        public synchronized void put(K key, V value) {
+            if (entries.put(key, new Entry<>(value, System.currentTimeMillis())) == null) {
+                insertionOrder.add(key);
+            }
+            while (maxSize >= 0 && entries.size() > maxSize) {
+                if (entries.remove(insertionOrder.remove()) != null) {
+                    evictions++;
+                }
+            }
+        }
+
+        @Override
+        public V get(K key) {
+            return get(key, validityChecker);
+        }
+
+        @Override
+        public V get(K key, ICacheEntryValidityChecker<? super K, ? super V> checker) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && checker != null && !checker.checkIsValueStillValid(key, entry.value(), entry.created())) {
+                clearKey(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        }
+
+        @Override
+        public synchronized void clear() {
+            entries.clear();
+            insertionOrder.clear();
+        }
+
+        @Override
+        public synchronized void clearKey(K key) {
+            if (entries.remove(key) != null) {
+                insertionOrder.remove(key);
+            }
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return new HashSet<>(entries.keySet());
+        }
+
+        synchronized CacheStats stats() {
+            return new CacheStats(hits.sum(), misses.sum(), evictions, entries.size());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.print.template;
+
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IPostProcessorDialect;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.thymeleaf.postprocessor.PostProcessor;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.util.Set;
+
+/**
+ * Installs {@link DomTemplateHandler} at the end of the HTML processing chain. Templates rendered without a
+ * target document are passed through to the normal text output unchanged.
+ */
+class DomOutputDialect extends AbstractDialect implements IPostProcessorDialect {
+
+    DomOutputDialect() {
+        super("DomOutput");
+    }
+
+    @Override
+    public int getDialectPostProcessorPrecedence() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Set<IPostProcessor> getPostProcessors() {
+        return Set.of(new PostProcessor(TemplateMode.HTML, DomTemplateHandler.class, Integer.MAX_VALUE));
+    }
+}
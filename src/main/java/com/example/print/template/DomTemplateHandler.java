@@ -0,0 +1,181 @@
+package com.example.print.template;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AbstractTemplateHandler;
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.model.IXMLDeclaration;
+import org.unbescape.html.HtmlEscape;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the processed template as a namespace-aware W3C DOM, the same tree openhtmltopdf would get by parsing
+ * the rendered markup as XML. Text and attribute values leave Thymeleaf HTML-escaped and are unescaped here;
+ * comments, the doctype and processing instructions do not affect layout and are dropped. Public only because
+ * Thymeleaf instantiates post-processors reflectively.
+ */
+public class DomTemplateHandler extends AbstractTemplateHandler {
+
+    static final String DOCUMENT_VARIABLE = DomTemplateHandler.class.getName() + ".document";
+
+    private record Scope(Node node, Map<String, String> namespaces) {
+    }
+
+    private Document document;
+    private final Deque<Scope> open = new ArrayDeque<>();
+
+    @Override
+    public void setContext(ITemplateContext context) {
+        super.setContext(context);
+        document = (Document) context.getVariable(DOCUMENT_VARIABLE);
+        if (document != null) {
+            open.push(new Scope(document, Map.of(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI)));
+        }
+    }
+
+    @Override
+    public void handleOpenElement(IOpenElementTag openElementTag) {
+        if (document == null) {
+            super.handleOpenElement(openElementTag);
+            return;
+        }
+        open.push(appendElement(openElementTag));
+    }
+
+    @Override
+    public void handleStandaloneElement(IStandaloneElementTag standaloneElementTag) {
+        if (document == null) {
+            super.handleStandaloneElement(standaloneElementTag);
+            return;
+        }
+        appendElement(standaloneElementTag);
+    }
+
+    @Override
+    public void handleCloseElement(ICloseElementTag closeElementTag) {
+        if (document == null) {
+            super.handleCloseElement(closeElementTag);
+            return;
+        }
+        if (!closeElementTag.isUnmatched() && open.size() > 1) {
+            open.pop();
+        }
+    }
+
+    @Override
+    public void handleText(IText text) {
+        if (document == null) {
+            super.handleText(text);
+            return;
+        }
+        Node parent = open.peek().node();
+        if (parent != document) {
+            parent.appendChild(document.createTextNode(HtmlEscape.unescapeHtml(text.getText())));
+        }
+    }
+
+    @Override
+    public void handleCDATASection(ICDATASection cdataSection) {
+        if (document == null) {
+            super.handleCDATASection(cdataSection);
+            return;
+        }
+        Node parent = open.peek().node();
+        if (parent != document) {
+            parent.appendChild(document.createCDATASection(cdataSection.getContent()));
+        }
+    }
+
+    @Override
+    public void handleComment(IComment comment) {
+        if (document == null) {
+            super.handleComment(comment);
+        }
+    }
+
+    @Override
+    public void handleDocType(IDocType docType) {
+        if (document == null) {
+            super.handleDocType(docType);
+        }
+    }
+
+    @Override
+    public void handleXMLDeclaration(IXMLDeclaration xmlDeclaration) {
+        if (document == null) {
+            super.handleXMLDeclaration(xmlDeclaration);
+        }
+    }
+
+    @Override
+    public void handleProcessingInstruction(IProcessingInstruction processingInstruction) {
+        if (document == null) {
+            super.handleProcessingInstruction(processingInstruction);
+        }
+    }
+
+    private Scope appendElement(IProcessableElementTag tag) {
+        Scope parent = open.peek();
+        IAttribute[] attributes = tag.getAllAttributes();
+
+        Map<String, String> namespaces = parent.namespaces();
+        for (IAttribute attribute : attributes) {
+            String name = attribute.getAttributeCompleteName();
+            if (name.equals(XMLConstants.XMLNS_ATTRIBUTE) || prefix(name).equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                if (namespaces == parent.namespaces()) {
+                    namespaces = new HashMap<>(parent.namespaces());
+                }
+                String prefix = name.length() == XMLConstants.XMLNS_ATTRIBUTE.length() ? "" : name.substring(6);
+                namespaces.put(prefix, value(attribute));
+            }
+        }
+
+        String elementName = tag.getElementCompleteName();
+        String elementNamespace = namespaces.get(prefix(elementName));
+        Element element = elementNamespace == null && elementName.indexOf(':') >= 0
+                ? document.createElement(elementName)
+                : document.createElementNS(elementNamespace, elementName);
+        for (IAttribute attribute : attributes) {
+            String name = attribute.getAttributeCompleteName();
+            String prefix = prefix(name);
+            if (prefix.isEmpty()) {
+                element.setAttributeNS(name.equals(XMLConstants.XMLNS_ATTRIBUTE) ? XMLConstants.XMLNS_ATTRIBUTE_NS_URI : null,
+                        name, value(attribute));
+            } else if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, value(attribute));
+            } else if (namespaces.containsKey(prefix)) {
+                element.setAttributeNS(namespaces.get(prefix), name, value(attribute));
+            } else {
+                element.setAttribute(name, value(attribute));
+            }
+        }
+        parent.node().appendChild(element);
+        return new Scope(element, namespaces);
+    }
+
+    private static String prefix(String name) {
+        int colon = name.indexOf(':');
+        return colon < 0 ? "" : name.substring(0, colon);
+    }
+
+    private static String value(IAttribute attribute) {
+        String value = attribute.getValue();
+        return value == null ? "" : HtmlEscape.unescapeHtml(value);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.print.template;
+
+import com.example.print.cache.CacheStats;
+import org.thymeleaf.model.IModel;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Rendered fragments keyed by template, fragment, locale and the values of the variables the fragment reads.
+ * Bounded by the estimated size of the rendered markup with LRU eviction.
+ */
+class FragmentCache {
+
+    /**
+     * @param values snapshots of the variable values from {@link #snapshot}, so that the key holds no reference to
+     *               the caller's mutable objects
+     */
+    record Key(String template, String fragment, Locale locale, List<Object> values) {
+    }
+
+    /** Returned by {@link #snapshot} for values that cannot be part of a key. */
+    static final Object UNCACHEABLE = new Object();
+
+    private record Entry(IModel model, long bytes) {
+    }
+
+    private record Fragment(String template, String fragment) {
+    }
+
+    private static final Set<Class<?>> IMMUTABLE_NUMBERS = Set.of(Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class);
+
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Fragment, Optional<List<String>>> variables = new ConcurrentHashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    FragmentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized IModel get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.model();
+    }
+
+    /**
+     * @param markupLength length of the rendered markup, used to estimate the entry's heap size
+     */
+    synchronized void put(Key key, IModel model, int markupLength) {
+        long size = 2L * markupLength;
+        if (size > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(model, size));
+        bytes += size - (previous == null ? 0 : previous.bytes());
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * The variables {@code fragment} reads, found once per fragment by {@code finder}; empty if it cannot be cached.
+     */
+    Optional<List<String>> variables(String template, String fragment, Supplier<Optional<List<String>>> finder) {
+        return variables.computeIfAbsent(new Fragment(template, fragment), key -> finder.get());
+    }
+
+    /**
+     * An immutable copy of {@code value} that is equal to another snapshot exactly when the values are: the value
+     * itself for immutable JDK value types, enums and records of those, unmodifiable copies of lists, sets and maps.
+     * Anything else may change after it was cached, or compare by identity, and yields {@link #UNCACHEABLE}.
+     */
+    static Object snapshot(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Enum<?> || value instanceof UUID || value instanceof Locale) {
+            return value;
+        }
+        if (value instanceof Number) {
+            return IMMUTABLE_NUMBERS.contains(value.getClass()) ? value : UNCACHEABLE;
+        }
+        if (value instanceof TemporalAccessor) {
+            return value.getClass().getPackageName().equals("java.time") ? value : UNCACHEABLE;
+        }
+        if (value instanceof Record record) {
+            for (RecordComponent component : record.getClass().getRecordComponents()) {
+                Object componentValue = component(record, component);
+                if (componentValue == UNCACHEABLE || snapshot(componentValue) != componentValue) {
+                    return UNCACHEABLE;
+                }
+            }
+            return value;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new HashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object key = snapshot(entry.getKey());
+                Object entryValue = snapshot(entry.getValue());
+                if (key == UNCACHEABLE || entryValue == UNCACHEABLE) {
+                    return UNCACHEABLE;
+                }
+                copy.put(key, entryValue);
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof Set<?> set) {
+            Set<Object> copy = new HashSet<>();
+            return copyElements(set, copy) ? Collections.unmodifiableSet(copy) : UNCACHEABLE;
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> copy = new ArrayList<>(collection.size());
+            return copyElements(collection, copy) ? Collections.unmodifiableList(copy) : UNCACHEABLE;
+        }
+        return UNCACHEABLE;
+    }
+
+    private static boolean copyElements(Collection<?> elements, Collection<Object> copy) {
+        for (Object element : elements) {
+            Object snapshot = snapshot(element);
+            if (snapshot == UNCACHEABLE) {
+                return false;
+            }
+            copy.add(snapshot);
+        }
+        return true;
+    }
+
+    private static Object component(Record record, RecordComponent component) {
+        try {
+            Method accessor = component.getAccessor();
+            accessor.setAccessible(true);
+            return accessor.invoke(record);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return UNCACHEABLE;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        variables.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Drops the fragments of one template.
+     */
+    synchronized void clear(String template) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().template().equals(template)) {
+                bytes -= entry.getValue().bytes();
+                iterator.remove();
+            }
+        }
+        variables.keySet().removeIf(fragment -> fragment.template().equals(template));
+    }
+
+    /**
+     * {@link CacheStats#size()} is the estimated heap size of the cached markup in bytes.
+     */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, bytes);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.print.template;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+
+import java.util.Set;
+
+/**
+ * Adds {@code print:cache} for elements that also carry {@code th:fragment}. The fragment is rendered once per
+ * distinct combination of the variables its expressions read and then reused. Variables read only by fragments it
+ * inserts are not seen; list them in the attribute value, {@code print:cache="var1,var2"}.
+ */
+class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    static final String PREFIX = "print";
+
+    private final ITemplateEngine engine;
+    private final FragmentCache cache;
+
+    FragmentCacheDialect(ITemplateEngine engine, FragmentCache cache) {
+        super("Print", PREFIX, 1000);
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Set.of(new FragmentCacheProcessor(dialectPrefix, engine, cache));
+    }
+}
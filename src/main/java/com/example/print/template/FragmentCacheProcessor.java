@@ -0,0 +1,124 @@
+package com.example.print.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Replaces a {@code print:cache} element with its cached rendering. The key holds the locale and snapshots of the
+ * values of the declared variables and of every variable the fragment's own expressions read (see
+ * {@link FragmentVariables} and {@link FragmentCache#snapshot}), so that later changes to the caller's objects
+ * cannot reach it. A fragment reading a value without value semantics is rendered uncached. On a miss
+ * the fragment is rendered through a fragment selector with only those variables; the nested run sees
+ * {@link #BYPASS_VARIABLE} and leaves the element to the standard processors. Cached markup is inserted as
+ * non-processable, so values are never evaluated a second time. Fragments whose variables cannot be determined
+ * are rendered as if they had no {@code print:cache}.
+ */
+class FragmentCacheProcessor extends AbstractAttributeTagProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FragmentCacheProcessor.class);
+
+    static final String BYPASS_VARIABLE = FragmentCacheProcessor.class.getName() + ".bypass";
+
+    private static final String ATTRIBUTE_NAME = "cache";
+    private static final int PRECEDENCE = 10;
+
+    private final ITemplateEngine engine;
+    private final FragmentCache cache;
+
+    FragmentCacheProcessor(String dialectPrefix, ITemplateEngine engine, FragmentCache cache) {
+        super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME, true, PRECEDENCE, true);
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    @Override
+    protected void doProcess(ITemplateContext context, IProcessableElementTag tag, AttributeName attributeName,
+                             String attributeValue, IElementTagStructureHandler structureHandler) {
+        if (context.containsVariable(BYPASS_VARIABLE)) {
+            return;
+        }
+        String template = context.getTemplateData().getTemplate();
+        String fragment = fragmentName(tag, template);
+        Optional<List<String>> read =
+                cache.variables(template, fragment, () -> readVariables(context, template, fragment));
+        if (read.isEmpty()) {
+            return;
+        }
+        Set<String> variables = new LinkedHashSet<>(variableNames(attributeValue));
+        variables.addAll(read.get());
+        List<String> names = List.copyOf(variables);
+        List<Object> values = new ArrayList<>(names.size());
+        for (String name : names) {
+            Object value = FragmentCache.snapshot(context.getVariable(name));
+            if (value == FragmentCache.UNCACHEABLE) {
+                LOG.debug("Fragment {} in template {} is not cached: variable {} is not a value type",
+                        fragment, template, name);
+                return;
+            }
+            values.add(value);
+        }
+        FragmentCache.Key key = new FragmentCache.Key(template, fragment, context.getLocale(),
+                Collections.unmodifiableList(values));
+
+        IModel model = cache.get(key);
+        if (model == null) {
+            Context fragmentContext = new Context(context.getLocale());
+            for (int i = 0; i < names.size(); i++) {
+                fragmentContext.setVariable(names.get(i), context.getVariable(names.get(i)));
+            }
+            fragmentContext.setVariable(BYPASS_VARIABLE, Boolean.TRUE);
+            String markup = engine.process(
+                    new TemplateSpec(template, Set.of(fragment), TemplateMode.HTML, null), fragmentContext);
+            model = context.getModelFactory().parse(context.getTemplateData(), markup);
+            cache.put(key, model, markup.length());
+        }
+        structureHandler.replaceWith(model, false);
+    }
+
+    private static Optional<List<String>> readVariables(ITemplateContext context, String template, String fragment) {
+        IModel model = context.getConfiguration().getTemplateManager()
+                .parseStandalone(context, template, Set.of(fragment), TemplateMode.HTML, true, true);
+        Optional<List<String>> variables = FragmentVariables.of(model);
+        if (variables.isEmpty()) {
+            LOG.warn("Fragment {} in template {} is not cached: its expressions do not show which variables it reads",
+                    fragment, template);
+        }
+        return variables;
+    }
+
+    private static String fragmentName(IProcessableElementTag tag, String template) {
+        String signature = tag.getAttributeValue("th", "fragment");
+        if (signature == null || signature.isBlank()) {
+            throw new TemplateProcessingException(
+                    "print:cache requires th:fragment on the same element in template " + template);
+        }
+        int parameters = signature.indexOf('(');
+        return (parameters < 0 ? signature : signature.substring(0, parameters)).trim();
+    }
+
+    private static List<String> variableNames(String attributeValue) {
+        if (attributeValue == null || attributeValue.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(attributeValue.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+    }
+}
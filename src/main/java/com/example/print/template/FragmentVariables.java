@@ -0,0 +1,130 @@
+package com.example.print.template;
+
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.CompoundExpression;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.model.ITemplateEvent;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Finds the context variables a fragment reads in the {@code ${...}} and {@code *{...}} expressions of its
+ * attributes and text. Names are over-approximated: iteration and selection variables count as well, which only
+ * adds an unused value to the cache key. A fragment whose expressions cannot be parsed, or that looks variables up
+ * by name through {@code #vars}, {@code #ctx} or {@code #root}, has no variable list.
+ */
+final class FragmentVariables {
+
+    private static final Set<String> DYNAMIC_LOOKUPS = Set.of("#vars", "#ctx", "#root");
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private FragmentVariables() {
+    }
+
+    static Optional<List<String>> of(IModel fragment) {
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; i < fragment.size(); i++) {
+            ITemplateEvent event = fragment.get(i);
+            boolean analysed = true;
+            if (event instanceof IProcessableElementTag tag) {
+                for (IAttribute attribute : tag.getAllAttributes()) {
+                    analysed &= collect(attribute.getValue(), names);
+                }
+            } else if (event instanceof IText text) {
+                analysed = collect(text.getText(), names);
+            } else if (event instanceof ICDATASection cdata) {
+                analysed = collect(cdata.getContent(), names);
+            }
+            if (!analysed) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(List.copyOf(names));
+    }
+
+    private static boolean collect(String text, Set<String> names) {
+        if (text == null) {
+            return true;
+        }
+        for (int start = expressionStart(text, 0); start >= 0; ) {
+            int end = closingBrace(text, start + 2);
+            if (end < 0) {
+                return false;
+            }
+            try {
+                if (!walk(PARSER.parseRaw(text.substring(start + 2, end)).getAST(), true, names)) {
+                    return false;
+                }
+            } catch (ParseException e) {
+                return false;
+            }
+            start = expressionStart(text, end + 1);
+        }
+        return true;
+    }
+
+    private static int expressionStart(String text, int from) {
+        for (int i = from; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if ((c == '$' || c == '*') && text.charAt(i + 1) == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the brace closing an expression body that starts at {@code from}, skipping braces in string
+     * literals and nested ones such as {@code ${{value}}}.
+     */
+    private static int closingBrace(String text, int from) {
+        int depth = 1;
+        char quote = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param root whether {@code node} is evaluated against the context rather than against a preceding value,
+     *             as the later parts of {@code a.b.c} are
+     */
+    private static boolean walk(SpelNode node, boolean root, Set<String> names) {
+        if (node instanceof VariableReference && DYNAMIC_LOOKUPS.contains(node.toStringAST())) {
+            return false;
+        }
+        if (root && node instanceof PropertyOrFieldReference reference) {
+            names.add(reference.getName());
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            boolean childRoot = !(node instanceof CompoundExpression) || i == 0;
+            if (!walk(node.getChild(i), childRoot, names)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.print.template;
+
+import com.example.print.pdf.PdfGenerator;
+import org.w3c.dom.Document;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Templates known at startup. {@link #warmUp()} renders each one with its sample model and lays it out once,
+ * both as HTML and as a DOM, so template parsing, stylesheet loading and class loading happen before the first
+ * real request.
+ */
+public class TemplateRegistry {
+
+    private final ThymeleafRenderer renderer;
+    private final PdfGenerator pdfGenerator;
+    private final String baseUri;
+    private final Map<String, Map<String, Object>> sampleModels = new LinkedHashMap<>();
+
+    public TemplateRegistry(ThymeleafRenderer renderer, PdfGenerator pdfGenerator, String baseUri) {
+        this.renderer = renderer;
+        this.pdfGenerator = pdfGenerator;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Registers a template whose expressions tolerate missing variables.
+     */
+    public TemplateRegistry register(String templateName) {
+        return register(templateName, Map.of());
+    }
+
+    public TemplateRegistry register(String templateName, Map<String, Object> sampleModel) {
+        sampleModels.put(templateName, sampleModel);
+        return this;
+    }
+
+    public Set<String> templates() {
+        return Collections.unmodifiableSet(sampleModels.keySet());
+    }
+
+    public void warmUp() {
+        sampleModels.forEach((templateName, sampleModel) -> {
+            try {
+                String html = renderer.render(templateName, sampleModel);
+                pdfGenerator.generatePdf(html, baseUri, OutputStream.nullOutputStream(), templateName);
+                Document document = renderer.renderDocument(templateName, sampleModel);
+                pdfGenerator.generatePdf(document, baseUri, OutputStream.nullOutputStream());
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Failed to warm up template " + templateName, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.print.template;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content hash of a template and the stylesheets it links with a static {@code href}, for cache keys that change
+ * when either file changes. Hashes are memoized; for {@code file:} resources the modification times are checked on
+ * every call, so edits during development are picked up, while {@code jar:} resources are hashed once. A
+ * {@link ChangeListener} hears about edits, so that caches holding the old files can drop them before the next
+ * render. Fragments inserted from other templates are not included.
+ */
+public class TemplateVersions {
+
+    private static final Pattern STYLESHEET_HREF = Pattern.compile("<link\\b[^>]*\\shref\\s*=\\s*\"([^\"]+)\"");
+
+    /**
+     * Called from {@link #version} when a template's version differs from the one computed before.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * @param stylesheets absolute URIs of the stylesheets the template links now or linked before
+         */
+        void changed(String templateName, Set<String> stylesheets);
+    }
+
+    private record Version(String hash, List<String> stylesheets, List<Path> files, List<FileTime> lastModified) {
+    }
+
+    private final String baseUri;
+    private final ChangeListener listener;
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param baseUri the base URI the PDFs are generated with, used to resolve stylesheet links; {@code null} hashes
+     *                the template alone
+     */
+    public TemplateVersions(String baseUri) {
+        this(baseUri, (templateName, stylesheets) -> {
+        });
+    }
+
+    public TemplateVersions(String baseUri, ChangeListener listener) {
+        this.baseUri = baseUri;
+        this.listener = listener;
+    }
+
+    public String version(String templateName) {
+        Version version = versions.get(templateName);
+        if (version == null || changed(version)) {
+            Version previous = version;
+            version = compute(templateName);
+            versions.put(templateName, version);
+            if (previous != null && !previous.hash().equals(version.hash())) {
+                Set<String> stylesheets = new LinkedHashSet<>(previous.stylesheets());
+                stylesheets.addAll(version.stylesheets());
+                listener.changed(templateName, stylesheets);
+            }
+        }
+        return version.hash();
+    }
+
+    private Version compute(String templateName) {
+        String resource = ThymeleafRenderer.TEMPLATE_PREFIX + templateName + ThymeleafRenderer.TEMPLATE_SUFFIX;
+        URL template = TemplateVersions.class.getClassLoader().getResource(resource);
+        if (template == null) {
+            throw new RuntimeException("Template not found on classpath: " + resource);
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            List<String> stylesheets = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            List<FileTime> lastModified = new ArrayList<>();
+            byte[] source = read(template, files, lastModified);
+            sha256.update(source);
+            Matcher links = STYLESHEET_HREF.matcher(new String(source, StandardCharsets.UTF_8));
+            while (baseUri != null && links.find()) {
+                URL stylesheet = resolve(links.group(1));
+                stylesheets.add(stylesheet.toExternalForm());
+                sha256.update(read(stylesheet, files, lastModified));
+            }
+            return new Version(HexFormat.of().formatHex(sha256.digest()), stylesheets, files, lastModified);
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            throw new RuntimeException("Failed to compute version of template " + templateName, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Resolves a link the way openhtmltopdf does. {@link java.net.URI#resolve} leaves the href unchanged against an
+     * opaque base such as {@code jar:file:/app.jar!/}, the base used when the templates ship in a jar.
+     */
+    @SuppressWarnings("deprecation")
+    private URL resolve(String href) throws MalformedURLException {
+        return new URL(new URL(baseUri), href);
+    }
+
+    private static byte[] read(URL url, List<Path> files, List<FileTime> lastModified)
+            throws IOException, URISyntaxException {
+        if ("file".equals(url.getProtocol())) {
+            Path file = Path.of(url.toURI());
+            files.add(file);
+            lastModified.add(Files.getLastModifiedTime(file));
+            return Files.readAllBytes(file);
+        }
+        try (InputStream in = url.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static boolean changed(Version version) {
+        for (int i = 0; i < version.files().size(); i++) {
+            try {
+                if (!Files.getLastModifiedTime(version.files().get(i)).equals(version.lastModified().get(i))) {
+                    return true;
+                }
+            } catch (IOException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
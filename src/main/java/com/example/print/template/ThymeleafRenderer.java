@@ -1,29 +1,134 @@
 package com.example.print.template;
 
+import com.example.print.cache.CacheStats;
+import com.example.print.metrics.RenderMetrics;
+import com.example.print.metrics.Stage;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Writer;
 import java.util.Map;
 
 public class ThymeleafRenderer {
 
+    public static final int DEFAULT_TEMPLATE_CACHE_SIZE = 200;
+    public static final long DEFAULT_FRAGMENT_CACHE_BYTES = 16L * 1024 * 1024;
+
+    static final String TEMPLATE_PREFIX = "templates/";
+    static final String TEMPLATE_SUFFIX = ".html";
+
+    private static final DOMImplementation DOM = domImplementation();
+
     private final SpringTemplateEngine engine;
+    private final CountingCacheManager cacheManager;
+    private final FragmentCache fragmentCache = new FragmentCache(DEFAULT_FRAGMENT_CACHE_BYTES);
 
     public ThymeleafRenderer() {
+        this(DEFAULT_TEMPLATE_CACHE_SIZE);
+    }
+
+    /**
+     * @param templateCacheSize maximum number of parsed templates kept; cached templates never expire
+     */
+    public ThymeleafRenderer(int templateCacheSize) {
         ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
-        resolver.setPrefix("templates/");
-        resolver.setSuffix(".html");
+        resolver.setPrefix(TEMPLATE_PREFIX);
+        resolver.setSuffix(TEMPLATE_SUFFIX);
         resolver.setTemplateMode("HTML");
         resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null);
+
+        cacheManager = new CountingCacheManager(templateCacheSize);
 
         engine = new SpringTemplateEngine();
         engine.setTemplateResolver(resolver);
+        engine.setCacheManager(cacheManager);
+        engine.addDialect(new DomOutputDialect());
+        engine.addDialect(new FragmentCacheDialect(engine, fragmentCache));
     }
 
     public String render(String templateName, Map<String, Object> variables) {
+        RenderMetrics.Timer timer = RenderMetrics.start();
         Context context = new Context();
         context.setVariables(variables);
-        return engine.process(templateName, context);
+        String html = engine.process(templateName, context);
+        if (timer != null) {
+            timer.stop(templateName, Stage.TEMPLATE);
+        }
+        return html;
+    }
+
+    /**
+     * Renders straight into a W3C DOM for {@code PdfGenerator.generatePdf(Document, ...)}, without building
+     * the HTML string and parsing it again.
+     */
+    public Document renderDocument(String templateName, Map<String, Object> variables) {
+        RenderMetrics.Timer timer = RenderMetrics.start();
+        Document document = DOM.createDocument(null, null, null);
+        document.setUserData(RenderMetrics.TEMPLATE_KEY, templateName, null);
+        Context context = new Context();
+        context.setVariables(variables);
+        context.setVariable(DomTemplateHandler.DOCUMENT_VARIABLE, document);
+        engine.process(templateName, context, Writer.nullWriter());
+        if (timer != null) {
+            timer.stop(templateName, Stage.TEMPLATE);
+        }
+        return document;
+    }
+
+    /**
+     * Whether a template of that name exists on the classpath, e.g. to reject unknown names before rendering.
+     */
+    public boolean hasTemplate(String templateName) {
+        return ThymeleafRenderer.class.getClassLoader().getResource(TEMPLATE_PREFIX + templateName + TEMPLATE_SUFFIX) != null;
+    }
+
+    /**
+     * {@link CacheStats#evictions()} counts templates pushed out by the size limit, not those dropped by
+     * {@link #clearTemplateCache()}.
+     */
+    public CacheStats templateCacheStats() {
+        return cacheManager.templateCacheStats();
+    }
+
+    public CacheStats expressionCacheStats() {
+        return cacheManager.expressionCacheStats();
+    }
+
+    /**
+     * Statistics of {@code print:cache} fragments; {@link CacheStats#size()} is the estimated heap size in bytes.
+     */
+    public CacheStats fragmentCacheStats() {
+        return fragmentCache.stats();
+    }
+
+    /**
+     * Drops all parsed templates and cached fragments, e.g. after a template file changed during development.
+     */
+    public void clearTemplateCache() {
+        engine.clearTemplateCache();
+        fragmentCache.clear();
+    }
+
+    /**
+     * Drops one parsed template and its cached fragments, so the next render reads the file again.
+     */
+    public void evictTemplate(String templateName) {
+        engine.clearTemplateCacheFor(templateName);
+        fragmentCache.clear(templateName);
+    }
+
+    private static DOMImplementation domImplementation() {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().getDOMImplementation();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("No DOM implementation available", e);
+        }
     }
 }
@@ -0,0 +1,275 @@
+package com.example.print.server;
+
+import com.example.print.PrintPipeline;
+import com.example.print.cache.CacheStats;
+import com.example.print.json.Json;
+import com.example.print.metrics.RenderListener;
+import com.example.print.metrics.RenderMetrics;
+import com.example.print.qr.QrCodeGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Small HTTP front end for a {@link PrintPipeline}, built on the JDK's HTTP server so it runs without extra
+ * dependencies or network access. Every request runs on its own virtual thread. Not part of the library jar: the
+ * {@code server}, {@code cds} and {@code native} profiles build it from {@code src/server/java}.
+ * <ul>
+ *     <li>{@code POST /render/{template}} with a JSON object as model streams {@code application/pdf}</li>
+ *     <li>{@code GET /health} answers {@code {"status":"UP"}} while the server accepts requests</li>
+ *     <li>{@code GET /metrics} lists request, stage and cache metrics in the Prometheus text format</li>
+ * </ul>
+ * At most {@code maxConcurrent} documents render at once; up to {@code maxQueued} further requests wait for a
+ * slot, for at most {@link #QUEUE_TIMEOUT}. Anything beyond that is answered with 503 and {@code Retry-After}
+ * right away, before its body is read, so overload sheds requests instead of piling up threads and heap.
+ */
+public class PrintServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_QUEUED = 64;
+    public static final Duration QUEUE_TIMEOUT = Duration.ofSeconds(30);
+    static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrintServer.class);
+    private static final Pattern TEMPLATE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final PrintPipeline pipeline;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running;
+    private RenderListener previousListener;
+
+    public PrintServer(PrintPipeline pipeline, int port) {
+        this(pipeline, new InetSocketAddress(port), Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * @param address       where to listen; port 0 picks a free port, see {@link #port()}
+     * @param maxConcurrent documents rendered at the same time
+     * @param maxQueued     requests waiting for a slot before further ones are rejected
+     */
+    public PrintServer(PrintPipeline pipeline, InetSocketAddress address, int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1, was " + maxConcurrent);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative, was " + maxQueued);
+        }
+        this.pipeline = pipeline;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.slots = new Semaphore(maxConcurrent);
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open HTTP server on " + address, e);
+        }
+        server.setExecutor(executor);
+        server.createContext("/render/", this::render);
+        server.createContext("/health", this::health);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    /**
+     * Starts accepting requests and registers the server's metrics as {@link RenderListener}; the previous
+     * listener is restored on {@link #close()}.
+     */
+    public synchronized PrintServer start() {
+        previousListener = RenderMetrics.listener();
+        RenderMetrics.setListener(metrics);
+        server.start();
+        running = true;
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for running ones to finish.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        server.stop(1);
+        executor.close();
+        if (previousListener != null) {
+            RenderMetrics.setListener(previousListener);
+            previousListener = null;
+        }
+    }
+
+    private void render(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Use POST");
+                metrics.requestCompleted("", 405, System.nanoTime() - start);
+                return;
+            }
+            String template = exchange.getRequestURI().getPath().substring("/render/".length());
+            if (!TEMPLATE_NAME.matcher(template).matches() || !pipeline.renderer().hasTemplate(template)) {
+                sendText(exchange, 404, "Unknown template");
+                metrics.requestCompleted("", 404, System.nanoTime() - start);
+                return;
+            }
+            if (!admit()) {
+                metrics.requestRejected();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Too many requests");
+                return;
+            }
+            int status = 500;
+            boolean cutShort = false;
+            try {
+                Map<String, Object> model;
+                try {
+                    model = readModel(exchange.getRequestBody());
+                } catch (IllegalArgumentException e) {
+                    sendText(exchange, 400, e.getMessage());
+                    status = 400;
+                    return;
+                }
+                PrintPipeline.PreparedDocument document;
+                try {
+                    document = pipeline.prepare(template, model);
+                } catch (RuntimeException e) {
+                    LOG.warn("Rendering template {} failed", template, e);
+                    sendText(exchange, 500, "Template rendering failed");
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+                exchange.sendResponseHeaders(200, 0);
+                // Headers are out; a failure from here on can only cut the chunked response short.
+                try (OutputStream os = new BufferedOutputStream(exchange.getResponseBody(), 16 * 1024)) {
+                    document.writeTo(os);
+                    status = 200;
+                } catch (RuntimeException | IOException e) {
+                    LOG.warn("Writing the PDF of template {} failed after the response started", template, e);
+                    cutShort = true;
+                }
+            } finally {
+                slots.release();
+                if (cutShort) {
+                    metrics.requestFailed(template);
+                } else {
+                    metrics.requestCompleted(template, status, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a render slot, waiting in the queue if there is room; {@code false} means reject.
+     */
+    private boolean admit() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(QUEUE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private static Map<String, Object> readModel(InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        if (bytes.length == 0) {
+            return Map.of();
+        }
+        return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, running ? 200 : 503, running ? "{\"status\":\"UP\"}" : "{\"status\":\"DOWN\"}");
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, Supplier<CacheStats>> caches = new LinkedHashMap<>();
+            caches.put("template", pipeline.renderer()::templateCacheStats);
+            caches.put("expression", pipeline.renderer()::expressionCacheStats);
+            caches.put("fragment", pipeline.renderer()::fragmentCacheStats);
+            caches.put("resource", pipeline.pdfGenerator()::resourceCacheStats);
+            caches.put("qr_code", QrCodeGenerator::cacheStats);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            send(exchange, 200, metrics.scrape(maxConcurrent - slots.availablePermits(), queued.get(), caches));
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, message + "\n");
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    /**
+     * Serves the templates on the classpath: {@code [port] [template...]}. Port defaults to {@value #DEFAULT_PORT};
+     * listed templates are warmed up with {@link PrintPipeline#warmUp} before the port opens. Base URI for
+     * stylesheets and images from {@code -Dprint.baseUri} (default: classpath root).
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        String[] templates = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[0];
+        PrintPipeline pipeline = new PrintPipeline(defaultBaseUri());
+        if (templates.length > 0) {
+            pipeline.warmUp(templates);
+        }
+        PrintServer server = new PrintServer(pipeline, port).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        LOG.info("Print service listening on http://localhost:{}", server.port());
+    }
+
+    static String defaultBaseUri() {
+        URL classpathRoot = PrintServer.class.getClassLoader().getResource("");
+        return System.getProperty("print.baseUri", classpathRoot == null ? null : classpathRoot.toExternalForm());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.print.server;
+
+import com.example.print.cache.CacheStats;
+import com.example.print.metrics.RenderListener;
+import com.example.print.metrics.Stage;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Request and render counters of a {@link PrintServer}, written in the Prometheus text format. Request
+ * durations are kept as a histogram per template; stage timings, pages and bytes arrive as a
+ * {@link RenderListener}. Allocations are not exported: requests render on virtual threads, whose allocations the
+ * JVM does not report.
+ */
+final class ServerMetrics implements RenderListener {
+
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> durations = new ConcurrentHashMap<>();
+    private final Map<Stage, Summary> stages = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failed = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+
+    void requestCompleted(String template, int status, long nanos) {
+        String labels = "template=\"" + template + "\",status=\"" + status + "\"";
+        requests.computeIfAbsent(labels, key -> new LongAdder()).increment();
+        if (status == 200) {
+            durations.computeIfAbsent(template, key -> new Histogram()).record(nanos);
+        }
+    }
+
+    /**
+     * A request whose PDF failed after the 200 status had been sent, so that the client got a truncated body.
+     */
+    void requestFailed(String template) {
+        failed.computeIfAbsent(template, key -> new LongAdder()).increment();
+    }
+
+    void requestRejected() {
+        rejected.increment();
+    }
+
+    @Override
+    public void stageCompleted(String template, Stage stage, long nanos, long allocatedBytes) {
+        stages.computeIfAbsent(stage, key -> new Summary()).record(nanos);
+    }
+
+    @Override
+    public void documentCompleted(String template, int pages, long bytes) {
+        documents.increment();
+        this.pages.add(pages);
+        this.bytes.add(bytes);
+    }
+
+    String scrape(int inFlight, int queued, Map<String, Supplier<CacheStats>> caches) {
+        StringBuilder out = new StringBuilder();
+        header(out, "print_requests_total", "counter", "Finished render requests by template and HTTP status.");
+        requests.forEach((labels, count) -> sample(out, "print_requests_total", labels, count.sum()));
+        header(out, "print_request_duration_seconds", "histogram", "Time to render and stream successful requests.");
+        durations.forEach((template, histogram) -> histogram.write(out, "template=\"" + template + "\""));
+        header(out, "print_requests_failed_total", "counter", "Requests cut short after the PDF had started streaming.");
+        failed.forEach((template, count) -> sample(out, "print_requests_failed_total", "template=\"" + template + "\"",
+                count.sum()));
+        header(out, "print_requests_rejected_total", "counter", "Requests turned away because the queue was full.");
+        sample(out, "print_requests_rejected_total", null, rejected.sum());
+        header(out, "print_requests_in_flight", "gauge", "Requests being rendered.");
+        sample(out, "print_requests_in_flight", null, inFlight);
+        header(out, "print_requests_queued", "gauge", "Requests waiting for a render slot.");
+        sample(out, "print_requests_queued", null, queued);
+        header(out, "print_stage_duration_seconds", "summary", "Time per pipeline stage.");
+        stages.forEach((stage, summary) -> {
+            String labels = "stage=\"" + stage.name().toLowerCase(Locale.ROOT) + "\"";
+            sample(out, "print_stage_duration_seconds_sum", labels, summary.nanos.sum() / 1e9);
+            sample(out, "print_stage_duration_seconds_count", labels, summary.count.sum());
+        });
+        header(out, "print_documents_total", "counter", "PDFs written.");
+        sample(out, "print_documents_total", null, documents.sum());
+        header(out, "print_pages_total", "counter", "Pages in all PDFs written.");
+        sample(out, "print_pages_total", null, pages.sum());
+        header(out, "print_output_bytes_total", "counter", "Bytes of all PDFs written.");
+        sample(out, "print_output_bytes_total", null, bytes.sum());
+        header(out, "print_cache_hits_total", "counter", "Cache hits by cache.");
+        caches.forEach((cache, stats) -> sample(out, "print_cache_hits_total", "cache=\"" + cache + "\"", stats.get().hits()));
+        header(out, "print_cache_misses_total", "counter", "Cache misses by cache.");
+        caches.forEach((cache, stats) -> sample(out, "print_cache_misses_total", "cache=\"" + cache + "\"", stats.get().misses()));
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static final class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos) {
+            double seconds = elapsedNanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        void write(StringBuilder out, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, "print_request_duration_seconds_bucket", labels + ",le=\"" + format(BUCKETS[i]) + "\"", cumulative);
+            }
+            long total = count.sum();
+            sample(out, "print_request_duration_seconds_bucket", labels + ",le=\"+Inf\"", total);
+            sample(out, "print_request_duration_seconds_sum", labels, nanos.sum() / 1e9);
+            sample(out, "print_request_duration_seconds_count", labels, total);
+        }
+    }
+
+    private static final class Summary {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.print.server;
+
+import com.example.print.batch.BatchPdfGenerator;
+import com.example.print.batch.SpoolJob;
+import com.example.print.batch.SpoolResult;
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+/**
+ * Runs a {@link SpoolJob} from the command line: {@code <template> <models.ndjson> <spool directory>}. Start it
+ * once per core group to spread a run over several JVMs. Exits with 1 if any line failed and 2 on wrong usage.
+ * Base URI as for {@link PrintServer#main}.
+ */
+public final class SpoolRun {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpoolRun.class);
+
+    private SpoolRun() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            LOG.error("Usage: SpoolRun <template> <models.ndjson> <spool directory>");
+            System.exit(2);
+        }
+        BatchPdfGenerator generator =
+                new BatchPdfGenerator(new ThymeleafRenderer(), new PdfGenerator(), PrintServer.defaultBaseUri());
+        SpoolResult result = new SpoolJob(generator, args[0], Path.of(args[1]), Path.of(args[2])).run();
+        LOG.info("Spool job for {} finished: {}", args[0], result);
+        System.exit(result.failed() == 0 ? 0 : 1);
+    }
+}
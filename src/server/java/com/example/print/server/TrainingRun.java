@@ -0,0 +1,67 @@
+package com.example.print.server;
+
+import com.example.print.PrintPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Goes through everything a print service worker does once and exits, so that a JVM started with
+ * {@code -XX:ArchiveClassesAtExit=print.jsa} writes every class a worker needs into an AppCDS archive. Workers
+ * then start with {@code -XX:SharedArchiveFile=print.jsa} and the same class path.
+ * <p>
+ * Arguments: {@code <template>[=<model.json>] ...}. Each template is warmed up, then requested once over HTTP
+ * on a free loopback port with its model, or an empty one. Base URI as for {@link PrintServer#main}.
+ */
+public final class TrainingRun {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrainingRun.class);
+
+    private TrainingRun() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> models = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                models.put(arg, "{}");
+            } else {
+                models.put(arg.substring(0, separator), Files.readString(Path.of(arg.substring(separator + 1))));
+            }
+        }
+        PrintPipeline pipeline = new PrintPipeline(PrintServer.defaultBaseUri()).warmUp(models.keySet().toArray(String[]::new));
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (PrintServer server = new PrintServer(pipeline, address, 1, 0).start()) {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://" + address.getHostString() + ":" + server.port();
+            send(client, HttpRequest.newBuilder(URI.create(base + "/health")).build());
+            for (Map.Entry<String, String> model : models.entrySet()) {
+                send(client, HttpRequest.newBuilder(URI.create(base + "/render/" + model.getKey()))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(model.getValue()))
+                        .build());
+            }
+            send(client, HttpRequest.newBuilder(URI.create(base + "/metrics")).build());
+        }
+        LOG.info("Training run rendered {}", models.keySet());
+    }
+
+    private static void send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Training request " + request.uri() + " failed with status " + response.statusCode());
+        }
+    }
+}
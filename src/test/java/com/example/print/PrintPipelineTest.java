@@ -0,0 +1,156 @@
+package com.example.print;
+
+import com.example.print.cache.CacheStats;
+import com.example.print.cache.DocumentCache;
+import com.example.print.pdf.FontRegistry;
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.pdf.ResourceCache;
+import com.example.print.template.ThymeleafRenderer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrintPipelineTest {
+
+    private static final int THREADS = 8;
+    private static final int DOCUMENTS = 96;
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    @Test
+    void generate_concurrentMixedTemplates_matchesSequentialOutput() throws Exception {
+        PrintPipeline pipeline = new PrintPipeline(baseUri);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            expected.add(text(new PrintPipeline(baseUri).generate(template(i), model(i))));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                int index = i;
+                results.add(workers.submit(() -> {
+                    start.await();
+                    return text(pipeline.generate(template(index), model(index)));
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < DOCUMENTS; i++) {
+                assertEquals(expected.get(i), results.get(i).get(), "Document " + i + " differs under concurrency");
+            }
+        }
+        assertTrue(expected.get(0).contains("Kunde 0"));
+        assertTrue(expected.get(1).contains("Produkt 1"));
+    }
+
+    @Test
+    void warmUp_parsesTemplatesAndLoadsStylesheetsBeforeFirstDocument() {
+        ThymeleafRenderer renderer = new ThymeleafRenderer();
+        PdfGenerator pdfGenerator = new PdfGenerator(FontRegistry.defaultRegistry(), new ResourceCache(1024 * 1024));
+        PrintPipeline pipeline = new PrintPipeline(renderer, pdfGenerator, baseUri, null).warmUp("template-a", "template-b");
+        CacheStats templates = renderer.templateCacheStats();
+        CacheStats resources = pdfGenerator.resourceCacheStats();
+
+        pipeline.generate("template-a", model(0));
+        pipeline.generate("template-b", model(1));
+
+        assertTrue(resources.misses() >= 2, "Warm-up must load both stylesheets");
+        assertEquals(templates.misses(), renderer.templateCacheStats().misses(), "Documents after warm-up must not parse templates");
+        assertEquals(resources.misses(), pdfGenerator.resourceCacheStats().misses(), "Documents after warm-up must not load stylesheets");
+    }
+
+    @Test
+    void generate_withDocumentCache_servesRepeatedModelsConcurrently() throws Exception {
+        DocumentCache documents = new DocumentCache(64L * 1024 * 1024, null);
+        PrintPipeline pipeline = new PrintPipeline(new ThymeleafRenderer(), new PdfGenerator(), baseUri, documents);
+        for (int i = 0; i < 4; i++) {
+            pipeline.generate(template(i), model(i));
+        }
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                int index = i % 4;
+                results.add(workers.submit(() -> pipeline.generate(template(index), model(index))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertTrue(text(results.get(i).get()).contains(i % 2 == 0 ? "Kunde " + (i % 4) : "Produkt " + (i % 4)));
+            }
+        }
+
+        assertEquals(4, documents.stats().misses());
+        assertEquals(32, documents.stats().hits());
+    }
+
+    @Test
+    void generate_withDocumentCache_editedStylesheetChangesPdf(@TempDir Path baseDir) throws IOException {
+        Path css = Files.createDirectories(baseDir.resolve("css")).resolve("test-thymeleaf.css");
+        Files.writeString(css, "h1::after { content: ' v1'; }");
+        PdfGenerator pdfGenerator = new PdfGenerator(FontRegistry.defaultRegistry(), new ResourceCache(1024 * 1024));
+        PrintPipeline pipeline = new PrintPipeline(new ThymeleafRenderer(), pdfGenerator, baseDir.toUri().toString(),
+                new DocumentCache(1024 * 1024, baseDir.resolve("documents")));
+        Map<String, Object> model = Map.of("heading", "Heading");
+
+        byte[] before = pipeline.generate("test-thymeleaf", model);
+        Files.writeString(css, "h1::after { content: ' v2'; }");
+        Files.setLastModifiedTime(css, FileTime.from(Instant.now().plusSeconds(5)));
+        byte[] after = pipeline.generate("test-thymeleaf", model);
+
+        assertTrue(text(before).contains("Heading v1"), text(before));
+        assertTrue(text(after).contains("Heading v2"), "Edited stylesheet must be rendered, not the cached one: " + text(after));
+        assertFalse(Arrays.equals(before, after));
+        try (Stream<Path> files = Files.list(baseDir.resolve("documents"))) {
+            assertEquals(1, files.count(), "The PDF of the old version must be deleted");
+        }
+    }
+
+    private static String template(int index) {
+        return index % 2 == 0 ? "template-a" : "template-b";
+    }
+
+    private static Map<String, Object> model(int index) {
+        Map<String, Object> model = new HashMap<>();
+        if (index % 2 == 0) {
+            model.put("recipientName", "Kunde " + index);
+            model.put("subject", "Rechnung " + index);
+            model.put("qrCodeText", "https://example.com/doc/" + index);
+            model.put("senderName", "Sachbearbeiter " + index % 3);
+            model.put("showNotice", index % 4 == 0);
+            model.put("noticeText", "Hinweis " + index);
+        } else {
+            model.put("productName", "Produkt " + index);
+            model.put("price", index + ",00 €");
+            model.put("contactPerson", "Berater " + index % 3);
+            model.put("showSpecialOffer", index % 3 == 0);
+            model.put("specialOfferText", "Angebot " + index);
+        }
+        return model;
+    }
+
+    private static String text(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+}
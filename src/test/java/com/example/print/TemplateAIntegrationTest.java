@@ -9,7 +9,10 @@ import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.common.HybridBinarizer;
 import com.google.zxing.qrcode.QRCodeReader;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.BeforeAll;
@@ -38,8 +41,18 @@ class TemplateAIntegrationTest {
     }
 
     private byte[] generateTemplateAPdf() throws IOException {
-        String qrDataUri = QrCodeGenerator.generateDataUri(QR_URL, 300);
+        Map<String, Object> model = templateAModel();
+        model.put("qrCodeDataUri", QrCodeGenerator.generateDataUri(QR_URL, 300));
+        return generatePdf(model);
+    }
+
+    private byte[] generateTemplateAVectorQrPdf() {
+        Map<String, Object> model = templateAModel();
+        model.put("qrCodeText", QR_URL);
+        return generatePdf(model);
+    }
 
+    private Map<String, Object> templateAModel() {
         Map<String, Object> model = new HashMap<>();
         model.put("recipientName", "Hans Müller");
         model.put("recipientStreet", "Königstraße 42");
@@ -49,13 +62,15 @@ class TemplateAIntegrationTest {
         model.put("bodyText", "Sehr geehrter Herr Müller, hiermit möchten wir Sie über wichtige Änderungen informieren.");
         model.put("showNotice", true);
         model.put("noticeText", "Hinweis: Bitte beachten Sie die beigefügten Unterlagen.");
-        model.put("qrCodeDataUri", qrDataUri);
         model.put("senderName", "Dr. Anna Schmidt");
         model.put("termsText", "Es gelten die Allgemeinen Geschäftsbedingungen der ACME GmbH.");
         model.put("showDisclaimer", true);
         model.put("disclaimerText", "Haftungsausschluss: Dieses Dokument dient ausschließlich zu Informationszwecken.");
         model.put("contactInfo", "Kontakt: info@acme-gmbh.de | Tel: +49 89 123456-0");
+        return model;
+    }
 
+    private byte[] generatePdf(Map<String, Object> model) {
         ThymeleafRenderer renderer = new ThymeleafRenderer();
         String renderedHtml = renderer.render("template-a", model);
         String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
@@ -108,4 +123,42 @@ class TemplateAIntegrationTest {
                     "QR code must decode to the expected URL");
         }
     }
+
+    @Test
+    void testTemplateAVectorQrCodeScannable() throws Exception {
+        byte[] pdfBytes = generateTemplateAVectorQrPdf();
+        Files.write(OUTPUT_DIR.resolve("template-a-vector-qr.pdf"), pdfBytes);
+
+        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
+            PDResources resources = document.getPage(0).getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                assertFalse(resources.getXObject(name) instanceof PDImageXObject,
+                        "Vector QR code must not embed an image XObject");
+            }
+
+            PDFRenderer pdfRenderer = new PDFRenderer(document);
+            BufferedImage pageImage = pdfRenderer.renderImageWithDPI(0, 150);
+
+            BufferedImageLuminanceSource source = new BufferedImageLuminanceSource(pageImage);
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+            Result result = new QRCodeReader().decode(bitmap);
+
+            assertEquals(QR_URL, result.getText(), "Vector QR code must decode to the expected URL");
+        }
+    }
+
+    @Test
+    void testTemplateADocumentPipelineMatchesHtmlPipeline() throws IOException {
+        Map<String, Object> model = templateAModel();
+        model.put("qrCodeText", QR_URL);
+        String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+        byte[] fromDocument = new PdfGenerator().generatePdf(new ThymeleafRenderer().renderDocument("template-a", model), baseUri);
+
+        try (PDDocument expected = Loader.loadPDF(generatePdf(model));
+             PDDocument actual = Loader.loadPDF(fromDocument)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            assertEquals(2, actual.getNumberOfPages(), "Page break must survive the DOM pipeline");
+            assertEquals(stripper.getText(expected), stripper.getText(actual));
+        }
+    }
 }
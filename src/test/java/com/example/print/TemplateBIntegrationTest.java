@@ -28,7 +28,7 @@ class TemplateBIntegrationTest {
         Files.createDirectories(OUTPUT_DIR);
     }
 
-    private byte[] generateTemplateBPdf() throws IOException {
+    private Map<String, Object> templateBModel() {
         Map<String, Object> model = new HashMap<>();
         model.put("title", "Produktinformation");
         model.put("subtitle", "Premium Dienstleistungspaket");
@@ -43,9 +43,12 @@ class TemplateBIntegrationTest {
         model.put("showSpecialOffer", true);
         model.put("specialOfferText", "Sonderangebot: 15% Rabatt bei Bestellung bis zum 31.03.2026!");
         model.put("footerText", "Alle Preise verstehen sich zzgl. der gesetzlichen Mehrwertsteuer.");
+        return model;
+    }
 
+    private byte[] generateTemplateBPdf() throws IOException {
         ThymeleafRenderer renderer = new ThymeleafRenderer();
-        String renderedHtml = renderer.render("template-b", model);
+        String renderedHtml = renderer.render("template-b", templateBModel());
         String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
 
         PdfGenerator pdfGenerator = new PdfGenerator();
@@ -79,4 +82,19 @@ class TemplateBIntegrationTest {
             assertTrue(text.contains("Sonderangebot"), "PDF must contain 'Sonderangebot'");
         }
     }
+
+    @Test
+    void testTemplateBDocumentPipelineMatchesHtmlPipeline() throws IOException {
+        ThymeleafRenderer renderer = new ThymeleafRenderer();
+        String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+        byte[] fromDocument = new PdfGenerator().generatePdf(renderer.renderDocument("template-b", templateBModel()), baseUri);
+
+        try (PDDocument expected = Loader.loadPDF(generateTemplateBPdf());
+             PDDocument actual = Loader.loadPDF(fromDocument)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+            assertEquals(stripper.getText(expected), stripper.getText(actual));
+            assertTrue(stripper.getText(actual).contains("Bestellung & Kontakt"), "Entities must be resolved");
+        }
+    }
 }
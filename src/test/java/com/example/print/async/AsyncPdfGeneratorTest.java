@@ -0,0 +1,157 @@
+package com.example.print.async;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncPdfGeneratorTest {
+
+    public record LineItem(String description, String amount) {
+    }
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+    private final ThymeleafRenderer renderer = new ThymeleafRenderer();
+
+    @Test
+    void generate_returnsPdf() throws Exception {
+        try (AsyncPdfGenerator generator = new AsyncPdfGenerator(renderer, new PdfGenerator(), baseUri)) {
+            byte[] pdf = generator.generate("template-b", Map.of()).get(30, TimeUnit.SECONDS);
+
+            assertEquals("%PDF", new String(pdf, 0, 4));
+        }
+    }
+
+    @Test
+    void generate_deadlineExceeded_failsWithTimeoutAndFreesSlot() throws Exception {
+        try (AsyncPdfGenerator generator = new AsyncPdfGenerator(renderer, new PdfGenerator(), baseUri, null, 1)) {
+            long start = System.nanoTime();
+            CompletableFuture<byte[]> future = generator.generate("test-report", reportModel(20_000), Duration.ofMillis(200));
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, failure.getCause());
+            awaitIdle(generator, "test-report");
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMillis < 10_000, "Cancelled work must stop early, took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    void generatePdf_cancelledDuringLayout_throwsCancellationException() {
+        Document document = renderer.renderDocument("test-report", reportModel(500));
+        AtomicInteger polls = new AtomicInteger();
+        BooleanSupplier cancelled = () -> polls.incrementAndGet() > 100;
+
+        assertThrows(CancellationException.class,
+                () -> new PdfGenerator().generatePdf(document, baseUri, OutputStream.nullOutputStream(), cancelled));
+        assertTrue(polls.get() > 2, "Cancellation must be polled during layout, not only between stages");
+    }
+
+    @Test
+    void generate_slowTemplate_doesNotBlockOtherTemplates() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        PdfGenerator blocking = new PdfGenerator() {
+            @Override
+            public void generatePdf(Document document, String baseUri, OutputStream os, BooleanSupplier cancelled) {
+                boolean slow = document.getDocumentElement().getTextContent().contains("Kontoauszug");
+                if (slow) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+                super.generatePdf(document, baseUri, os, cancelled);
+            }
+        };
+        try (AsyncPdfGenerator generator = new AsyncPdfGenerator(renderer, blocking, baseUri, null, 1)) {
+            List<CompletableFuture<byte[]>> slow = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                slow.add(generator.generate("test-report", reportModel(5)));
+            }
+
+            byte[] other = generator.generate("template-b", Map.of()).get(30, TimeUnit.SECONDS);
+
+            assertEquals("%PDF", new String(other, 0, 4));
+            assertTrue(slow.stream().noneMatch(CompletableFuture::isDone), "Slow documents must still be waiting");
+            assertEquals(1, generator.running("test-report"));
+            release.countDown();
+            for (CompletableFuture<byte[]> future : slow) {
+                assertEquals("%PDF", new String(future.get(30, TimeUnit.SECONDS), 0, 4));
+            }
+            assertEquals(1, maxRunning.get(), "Only one document per template may run at a time");
+        }
+    }
+
+    @Test
+    void generate_cancelledWhileWaiting_isNeverRenderedAndNextStarts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger rendered = new AtomicInteger();
+        PdfGenerator blocking = new PdfGenerator() {
+            @Override
+            public void generatePdf(Document document, String baseUri, OutputStream os, BooleanSupplier cancelled) {
+                if (rendered.incrementAndGet() == 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.generatePdf(document, baseUri, os, cancelled);
+            }
+        };
+        try (AsyncPdfGenerator generator = new AsyncPdfGenerator(renderer, blocking, baseUri, null, 1)) {
+            CompletableFuture<byte[]> first = generator.generate("template-b", Map.of());
+            CompletableFuture<byte[]> cancelled = generator.generate("template-b", Map.of());
+            CompletableFuture<byte[]> timedOut = generator.generate("template-b", Map.of(), Duration.ofMillis(50));
+            CompletableFuture<byte[]> last = generator.generate("template-b", Map.of());
+
+            cancelled.cancel(false);
+            assertThrows(ExecutionException.class, () -> timedOut.get(30, TimeUnit.SECONDS));
+            release.countDown();
+
+            assertEquals("%PDF", new String(first.get(30, TimeUnit.SECONDS), 0, 4));
+            assertEquals("%PDF", new String(last.get(30, TimeUnit.SECONDS), 0, 4));
+            assertEquals(2, rendered.get(), "Documents that left the queue must not be rendered");
+            awaitIdle(generator, "template-b");
+        }
+    }
+
+    private static Map<String, Object> reportModel(int rows) {
+        return Map.of("title", "Kontoauszug", "customerName", "Hans Müller", "firstRowNumber", 1,
+                "firstChunk", true, "lastChunk", true,
+                "rows", IntStream.rangeClosed(1, rows)
+                        .mapToObj(i -> new LineItem("Position " + i + " – Gebühr", i + ",00 €"))
+                        .toList());
+    }
+
+    private static void awaitIdle(AsyncPdfGenerator generator, String templateName) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (generator.running(templateName) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, generator.running(templateName), "Slot must be released after cancellation");
+    }
+}
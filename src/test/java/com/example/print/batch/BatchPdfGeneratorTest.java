@@ -0,0 +1,179 @@
+package com.example.print.batch;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchPdfGeneratorTest {
+
+    private final ThymeleafRenderer renderer = new ThymeleafRenderer();
+    private final PdfGenerator pdfGenerator = new PdfGenerator();
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    private static Map<String, Object> model(int i) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("name", "Empfänger " + i);
+        model.put("street", "Königstraße " + i);
+        model.put("city", "80331 München");
+        model.put("heading", "Brief " + i);
+        model.put("message", "Dies ist Brief Nummer " + i + ".");
+        model.put("title", "Batch");
+        return model;
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void generate_writesEveryDocumentToDirectory(@TempDir Path outputDir) throws IOException {
+        BatchPdfGenerator batch = new BatchPdfGenerator(renderer, pdfGenerator, baseUri);
+
+        BatchResult result = batch.generate("test-thymeleaf", IntStream.range(0, 12).mapToObj(BatchPdfGeneratorTest::model),
+                BatchSink.toDirectory(outputDir, index -> "letter-" + index + ".pdf"));
+
+        assertEquals(new BatchResult(12, 12, 0), result);
+        for (int i = 0; i < 12; i++) {
+            byte[] pdf = Files.readAllBytes(outputDir.resolve("letter-" + i + ".pdf"));
+            String header = new String(pdf, 0, 5, StandardCharsets.US_ASCII);
+            assertTrue(header.startsWith("%PDF"), "letter-" + i + ".pdf must start with %PDF magic bytes");
+        }
+    }
+
+    @Test
+    void generate_failingDocument_isReportedWithoutAbortingBatch() {
+        BatchPdfGenerator batch = new BatchPdfGenerator(renderer, pdfGenerator, baseUri);
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        Map<Long, Throwable> failures = new ConcurrentHashMap<>();
+
+        BatchResult result = batch.generate("test-thymeleaf", IntStream.range(0, 8).mapToObj(BatchPdfGeneratorTest::model),
+                new BatchSink() {
+                    @Override
+                    public void accept(long index, byte[] pdf) throws IOException {
+                        if (index == 3) {
+                            throw new IOException("disk full");
+                        }
+                        written.add(index);
+                    }
+
+                    @Override
+                    public void failed(long index, Throwable cause) {
+                        failures.put(index, cause);
+                    }
+                });
+
+        assertEquals(new BatchResult(8, 7, 1), result);
+        assertEquals(Set.of(0L, 1L, 2L, 4L, 5L, 6L, 7L), written);
+        assertEquals("disk full", failures.get(3L).getMessage());
+    }
+
+    @Test
+    void generate_errorInSink_isCountedAndReported() {
+        Map<Long, Throwable> failures = new ConcurrentHashMap<>();
+
+        BatchResult result;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            BatchPdfGenerator batch = new BatchPdfGenerator(renderer, pdfGenerator, baseUri, executor, 2);
+            result = batch.generate("test-thymeleaf", IntStream.range(0, 4).mapToObj(BatchPdfGeneratorTest::model),
+                    new BatchSink() {
+                        @Override
+                        public void accept(long index, byte[] pdf) {
+                            if (index == 1) {
+                                throw new StackOverflowError("too deep");
+                            }
+                        }
+
+                        @Override
+                        public void failed(long index, Throwable cause) {
+                            failures.put(index, cause);
+                        }
+                    });
+        }
+
+        assertEquals(new BatchResult(4, 3, 1), result);
+        assertInstanceOf(StackOverflowError.class, failures.get(1L));
+    }
+
+    @Test
+    void generate_modelSourceThrows_finishesSubmittedDocumentsFirst() {
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        Iterator<Map<String, Object>> models = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (pulled.incrementAndGet() > 2) {
+                    throw new IllegalStateException("cursor closed");
+                }
+                return model(pulled.get());
+            }
+        };
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            BatchPdfGenerator batch = new BatchPdfGenerator(renderer, pdfGenerator, baseUri, executor, 4);
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> batch.generate("test-thymeleaf", models, (index, pdf) -> {
+                        pause();
+                        written.incrementAndGet();
+                    }));
+
+            assertEquals("cursor closed", e.getMessage());
+            assertEquals(2, written.get(), "Submitted documents must be written before the exception is rethrown");
+        }
+    }
+
+    @Test
+    void generate_boundsDocumentsInFlight() {
+        int maxInFlight = 2;
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        Iterator<Map<String, Object>> models = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 10;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                int inFlight = pulled.incrementAndGet() - completed.get();
+                maxObserved.accumulateAndGet(inFlight, Math::max);
+                return model(pulled.get());
+            }
+        };
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            BatchPdfGenerator batch = new BatchPdfGenerator(renderer, pdfGenerator, baseUri, executor, maxInFlight);
+            BatchResult result = batch.generate("test-thymeleaf", models, (index, pdf) -> completed.incrementAndGet());
+            assertEquals(10, result.succeeded());
+        }
+
+        assertTrue(maxObserved.get() <= maxInFlight,
+                "At most " + maxInFlight + " documents may be in flight, observed: " + maxObserved.get());
+    }
+}
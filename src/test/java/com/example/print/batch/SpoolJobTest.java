@@ -0,0 +1,145 @@
+package com.example.print.batch;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpoolJobTest {
+
+    private final ThymeleafRenderer renderer = new ThymeleafRenderer();
+    private final PdfGenerator pdfGenerator = new PdfGenerator();
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    private static String line(int i) {
+        return "{\"name\": \"Empfänger " + i + "\", \"city\": \"80331 München\", \"heading\": \"Brief " + i
+                + "\", \"message\": \"Dies ist Brief Nummer " + i + ".\", \"title\": \"Spool\"}";
+    }
+
+    private static Path input(Path dir, List<String> lines) throws IOException {
+        return Files.write(dir.resolve("models.ndjson"), lines, StandardCharsets.UTF_8);
+    }
+
+    private SpoolJob job(Path input, Path spool, int chunkSize) {
+        return new SpoolJob(new BatchPdfGenerator(renderer, pdfGenerator, baseUri), "test-thymeleaf", input, spool,
+                chunkSize, index -> "letter-" + index + ".pdf");
+    }
+
+    private static List<String> journal(Path spool) throws IOException {
+        return Files.readAllLines(spool.resolve(SpoolJob.JOURNAL));
+    }
+
+    @Test
+    void run_writesEveryLine_andRestartSkipsThem(@TempDir Path dir) throws IOException {
+        Path input = input(dir, List.of(line(0), line(1), line(2), "", line(4), line(5), line(6), line(7)));
+        Path spool = dir.resolve("spool");
+
+        assertEquals(new SpoolResult(7, 0, 0), job(input, spool, 3).run());
+
+        for (int i : new int[]{0, 1, 2, 4, 5, 6, 7}) {
+            byte[] pdf = Files.readAllBytes(spool.resolve("letter-" + i + ".pdf"));
+            assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.US_ASCII));
+        }
+        assertFalse(Files.exists(spool.resolve("letter-3.pdf")));
+        try (Stream<Path> files = Files.list(spool)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".part")));
+        }
+        assertEquals(7, journal(spool).size());
+
+        assertEquals(new SpoolResult(0, 0, 7), job(input, spool, 3).run());
+        assertEquals(7, journal(spool).size());
+    }
+
+    @Test
+    void run_afterCrash_rendersOnlyUnfinishedLines(@TempDir Path dir) throws IOException {
+        Path input = input(dir, List.of(line(0), line(1), line(2), line(3), line(4)));
+        Path spool = dir.resolve("spool");
+        job(input, spool, 2).run();
+
+        // crash while journaling line 3; line 1 was journaled but its rename never reached the disk
+        List<String> records = journal(spool).stream().filter(record -> !record.equals("done 3")).toList();
+        Files.writeString(spool.resolve(SpoolJob.JOURNAL), String.join("\n", records) + "\ndon");
+        Files.delete(spool.resolve("letter-1.pdf"));
+
+        assertEquals(new SpoolResult(2, 0, 3), job(input, spool, 2).run());
+        assertTrue(Files.exists(spool.resolve("letter-1.pdf")));
+        assertEquals(List.of("done 0", "done 1", "done 2", "done 3", "done 4"),
+                journal(spool).stream().filter(record -> record.startsWith("done ")).distinct().sorted().toList());
+    }
+
+    @Test
+    void run_invalidLine_isJournaledAndRetriedOnNextRun(@TempDir Path dir) throws IOException {
+        Path spool = dir.resolve("spool");
+        Path input = input(dir, List.of(line(0), "{\"name\": ", line(2)));
+
+        assertEquals(new SpoolResult(2, 1, 0), job(input, spool, 10).run());
+        assertTrue(journal(spool).stream().anyMatch(record -> record.startsWith("failed 1 java.lang.IllegalArgumentException")));
+        assertFalse(Files.exists(spool.resolve("letter-1.pdf")));
+
+        input(dir, List.of(line(0), line(1), line(2)));
+        assertEquals(new SpoolResult(1, 0, 2), job(input, spool, 10).run());
+        assertTrue(Files.exists(spool.resolve("letter-1.pdf")));
+    }
+
+    @Test
+    void run_concurrentJobs_renderEachLineOnce(@TempDir Path dir) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            lines.add(line(i));
+        }
+        Path input = input(dir, lines);
+        Path spool = dir.resolve("spool");
+
+        List<SpoolResult> results = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(3)) {
+            List<Future<SpoolResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(workers.submit(() -> job(input, spool, 2).run()));
+            }
+            for (Future<SpoolResult> future : futures) {
+                results.add(future.get());
+            }
+        }
+
+        assertEquals(16, results.stream().mapToLong(SpoolResult::succeeded).sum());
+        for (SpoolResult result : results) {
+            assertEquals(16, result.succeeded() + result.skipped());
+        }
+        List<String> done = journal(spool);
+        assertEquals(16, done.size());
+        assertEquals(16, done.stream().distinct().count());
+    }
+
+    @Test
+    void journal_lineNumbersBeyondIntRange_areRecordedAndReadBack(@TempDir Path dir) throws IOException {
+        long beyondInt = Integer.MAX_VALUE + 2L;
+        try (SpoolJob.Journal journal = new SpoolJob.Journal(dir.resolve(SpoolJob.JOURNAL))) {
+            journal.done(beyondInt);
+            journal.done(7);
+
+            assertTrue(journal.isDone(beyondInt));
+            assertFalse(journal.isDone(beyondInt - 1));
+        }
+
+        try (SpoolJob.Journal journal = new SpoolJob.Journal(dir.resolve(SpoolJob.JOURNAL))) {
+            journal.refresh();
+
+            assertTrue(journal.isDone(beyondInt));
+            assertTrue(journal.isDone(7));
+            assertFalse(journal.isDone(8));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.print.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private record Address(String street, List<String> lines) {
+    }
+
+    private enum Format { LETTER, A4 }
+
+    private static final class Customer {
+
+        private final String name;
+
+        Customer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return "Customer";
+        }
+    }
+
+    @Test
+    void get_identicalRequest_returnsCachedBytesWithoutRendering() {
+        DocumentCache cache = new DocumentCache(1024, null);
+        AtomicInteger renders = new AtomicInteger();
+        String key = DocumentCache.key("template-a", "v1", Map.of("recipientName", "Hans Müller"));
+
+        byte[] first = cache.get(key, () -> new byte[]{(byte) renders.incrementAndGet()});
+        byte[] second = cache.get(key, () -> new byte[]{(byte) renders.incrementAndGet()});
+
+        assertArrayEquals(first, second);
+        assertEquals(1, renders.get());
+        assertEquals(new CacheStats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    void get_overMemoryBudget_evictsLeastRecentlyUsed() {
+        DocumentCache cache = new DocumentCache(10, null);
+
+        cache.get(key("a"), () -> new byte[4]);
+        cache.get(key("b"), () -> new byte[4]);
+        cache.get(key("a"), () -> new byte[4]);
+        cache.get(key("c"), () -> new byte[4]);
+
+        assertEquals(new CacheStats(1, 3, 1, 8), cache.stats());
+    }
+
+    @Test
+    void get_diskTier_survivesNewInstance() {
+        String key = DocumentCache.key("template-b", "v1", Map.of("title", "Preisliste"));
+        new DocumentCache(1024, dir).get(key, () -> new byte[]{1, 2, 3});
+
+        DocumentCache restarted = new DocumentCache(1024, dir);
+        byte[] pdf = restarted.get(key, () -> fail("Must be served from disk"));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, pdf);
+        assertTrue(Files.exists(dir.resolve(key + ".pdf")));
+        assertEquals(1, restarted.stats().hits());
+    }
+
+    @Test
+    void get_callerModifiesResult_cachedPdfStaysIntact() {
+        DocumentCache cache = new DocumentCache(1024, dir);
+        new DocumentCache(1024, dir).get(key("disk"), () -> new byte[]{4, 5, 6});
+
+        cache.get(key("memory"), () -> new byte[]{1, 2, 3})[0] = 9;
+        cache.get(key("memory"), () -> fail("Must be served from memory"))[0] = 9;
+        cache.get(key("disk"), () -> fail("Must be served from disk"))[0] = 9;
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(key("memory"), () -> fail("Must be served from memory")));
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get(key("disk"), () -> fail("Must be served from memory")));
+    }
+
+    @Test
+    void write_servesCachedPdfToStream() {
+        DocumentCache cache = new DocumentCache(1024, null);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        cache.write(key("a"), () -> new byte[]{1, 2, 3}, first);
+        cache.write(key("a"), () -> fail("Must be served from memory"), second);
+
+        assertArrayEquals(new byte[]{1, 2, 3}, first.toByteArray());
+        assertArrayEquals(new byte[]{1, 2, 3}, second.toByteArray());
+        assertEquals(new CacheStats(1, 1, 0, 3), cache.stats());
+    }
+
+    @Test
+    void get_overDiskBudget_deletesLeastRecentlyUsedFiles() throws IOException {
+        DocumentCache cache = new DocumentCache(0, dir, 10);
+
+        cache.get(key("a"), () -> new byte[4]);
+        cache.get(key("b"), () -> new byte[4]);
+        cache.get(key("a"), () -> fail("Must be served from disk"));
+        cache.get(key("c"), () -> new byte[4]);
+
+        assertTrue(Files.exists(dir.resolve(key("a") + ".pdf")));
+        assertFalse(Files.exists(dir.resolve(key("b") + ".pdf")), "Least recently used file must be deleted");
+        assertTrue(Files.exists(dir.resolve(key("c") + ".pdf")));
+        Files.setLastModifiedTime(dir.resolve(key("a") + ".pdf"), FileTime.from(Instant.now().minusSeconds(60)));
+
+        new DocumentCache(0, dir, 4);
+
+        assertFalse(Files.exists(dir.resolve(key("a") + ".pdf")),
+                "Oldest file must be deleted when opened with a smaller budget");
+        assertTrue(Files.exists(dir.resolve(key("c") + ".pdf")));
+    }
+
+    @Test
+    void invalidateTemplate_dropsEveryVersionOfThatTemplateOnly() {
+        DocumentCache cache = new DocumentCache(1024, dir);
+        String v1 = DocumentCache.key("template-a", "v1", Map.of("recipientName", "Hans Müller"));
+        String v2 = DocumentCache.key("template-a", "v2", Map.of("recipientName", "Hans Müller"));
+        String other = DocumentCache.key("template-a-short", "v1", Map.of("recipientName", "Hans Müller"));
+        cache.get(v1, () -> new byte[]{1});
+        cache.get(v2, () -> new byte[]{2});
+        cache.get(other, () -> new byte[]{3});
+
+        cache.invalidateTemplate("template-a");
+
+        assertFalse(Files.exists(dir.resolve(v1 + ".pdf")));
+        assertFalse(Files.exists(dir.resolve(v2 + ".pdf")));
+        assertArrayEquals(new byte[]{3}, cache.get(other, () -> fail("Other templates must stay cached")));
+        assertArrayEquals(new byte[]{4}, cache.get(v1, () -> new byte[]{4}));
+        assertEquals(2, cache.stats().size(), "Memory must hold the other template and the re-rendered entry");
+    }
+
+    @Test
+    void invalidateAll_clearsBothTiers() {
+        DocumentCache cache = new DocumentCache(1024, dir);
+        cache.get(key("a"), () -> new byte[]{1});
+
+        cache.invalidateAll();
+
+        assertArrayEquals(new byte[]{2}, cache.get(key("a"), () -> new byte[]{2}));
+    }
+
+    @Test
+    void get_keyNotFromKeyMethod_isRejected() {
+        DocumentCache cache = new DocumentCache(1024, dir);
+        String outside = "../" + key("a");
+
+        assertThrows(IllegalArgumentException.class, () -> cache.get(outside, () -> new byte[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> cache.invalidate(outside));
+        assertFalse(Files.exists(dir.resolveSibling(key("a") + ".pdf")), "Must not write outside the directory");
+    }
+
+    @Test
+    void get_unusableDiskTier_stillReturnsRenderedPdf() throws IOException {
+        Path notADirectory = Files.writeString(dir.resolve("not-a-directory"), "");
+        DocumentCache cache = new DocumentCache(1024, notADirectory);
+
+        byte[] pdf = cache.get(key("a"), () -> new byte[]{1, 2, 3});
+
+        assertArrayEquals(new byte[]{1, 2, 3}, pdf);
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(key("a"), () -> fail("Must be served from memory")));
+    }
+
+    @Test
+    void key_isIndependentOfMapOrderButSensitiveToValuesAndVersion() {
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("a", 1);
+        ordered.put("b", List.of("x", "y"));
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("b", List.of("x", "y"));
+        reversed.put("a", 1);
+
+        assertEquals(DocumentCache.key("t", "v1", ordered), DocumentCache.key("t", "v1", reversed));
+        assertNotEquals(DocumentCache.key("t", "v1", ordered), DocumentCache.key("t", "v2", ordered));
+        assertNotEquals(DocumentCache.key("t", "v1", Map.of("a", 1)), DocumentCache.key("t", "v1", Map.of("a", "1")));
+        assertNotEquals(DocumentCache.key("t", "v1", Map.of("a", "x,b=y")), DocumentCache.key("t", "v1", Map.of("a", "x", "b", "y")));
+    }
+
+    @Test
+    void key_valueTypes_areKeyedByValue() {
+        Map<String, Object> model = Map.of("address", new Address("Königstraße 42", List.of("80331 München")),
+                "format", Format.A4, "date", LocalDate.of(2026, 2, 18), "amount", new BigDecimal("2499.00"));
+        Map<String, Object> other = Map.of("address", new Address("Königstraße 43", List.of("80331 München")),
+                "format", Format.A4, "date", LocalDate.of(2026, 2, 18), "amount", new BigDecimal("2499.00"));
+
+        assertEquals(DocumentCache.key("t", "v1", model), DocumentCache.key("t", "v1", Map.copyOf(model)));
+        assertNotEquals(DocumentCache.key("t", "v1", model), DocumentCache.key("t", "v1", other));
+    }
+
+    @Test
+    void key_objectWithoutValueSemantics_isRejected() {
+        Map<String, Object> model = Map.of("customer", new Customer("Hans Müller"));
+        Map<String, Object> nested = Map.of("customers", List.of(new Customer("Hans Müller")));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DocumentCache.key("t", "v1", model));
+        assertTrue(e.getMessage().contains(Customer.class.getName()), "Message must name the type: " + e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> DocumentCache.key("t", "v1", nested));
+        assertThrows(IllegalArgumentException.class, () -> DocumentCache.key("t", "v1", Map.of("s", new StringBuilder())));
+    }
+
+    private static String key(String name) {
+        return DocumentCache.key(name, "v1", Map.of());
+    }
+}
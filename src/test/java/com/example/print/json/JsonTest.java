@@ -0,0 +1,53 @@
+package com.example.print.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTest {
+
+    @Test
+    void parse_nestedModel_mapsToJavaTypes() {
+        Object model = Json.parse("""
+                {"name": "M\\u00fcller \\"Hans\\"", "count": 3, "big": 12345678901, "price": 19.90,
+                 "active": true, "none": null, "items": [{"id": 1}, "zwei", []]}
+                """);
+
+        assertEquals(Map.of("id", 1), ((List<?>) ((Map<?, ?>) model).get("items")).get(0));
+        Map<?, ?> map = (Map<?, ?>) model;
+        assertEquals("Müller \"Hans\"", map.get("name"));
+        assertEquals(3, map.get("count"));
+        assertEquals(12345678901L, map.get("big"));
+        assertEquals(new BigDecimal("19.90"), map.get("price"));
+        assertEquals(Boolean.TRUE, map.get("active"));
+        assertTrue(map.containsKey("none"));
+        assertNull(map.get("none"));
+        assertEquals(List.of(), ((List<?>) map.get("items")).get(2));
+    }
+
+    @Test
+    void parse_malformedInput_throwsWithPosition() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": 1,}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": tru}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"open"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{} {}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[1, 2]"));
+        IllegalArgumentException deep = assertThrows(IllegalArgumentException.class, () -> Json.parse("[".repeat(100)));
+        assertTrue(deep.getMessage().contains("position"));
+    }
+
+    @Test
+    void parse_numbers_followJsonGrammar() {
+        assertEquals(0, Json.parse("0"));
+        assertEquals(-12, Json.parse("-12"));
+        assertEquals(new BigDecimal("-0.5E+3"), Json.parse("-0.5e+3"));
+        assertEquals(new BigDecimal("1E2"), Json.parse("1E2"));
+        for (String invalid : List.of("+1", "1-2", "00", "01", "-", "1.", ".5", "1.e5", "1e", "1e+", "--1", "[1+2]")) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parse(invalid), invalid + " is not a JSON number");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.print.metrics;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.qr.QrCodeGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderMetricsTest {
+
+    private record StageEvent(String template, Stage stage, long nanos, long allocatedBytes) {
+    }
+
+    private record DocumentEvent(String template, int pages, long bytes) {
+    }
+
+    private final List<StageEvent> stages = new ArrayList<>();
+    private final List<DocumentEvent> documents = new ArrayList<>();
+    private final RenderListener recorder = new RenderListener() {
+        @Override
+        public void stageCompleted(String template, Stage stage, long nanos, long allocatedBytes) {
+            stages.add(new StageEvent(template, stage, nanos, allocatedBytes));
+        }
+
+        @Override
+        public void documentCompleted(String template, int pages, long bytes) {
+            documents.add(new DocumentEvent(template, pages, bytes));
+        }
+    };
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    @AfterEach
+    void tearDown() {
+        RenderMetrics.setListener(null);
+    }
+
+    @Test
+    void listener_receivesEveryStageTaggedWithTemplate() {
+        RenderMetrics.setListener(recorder);
+
+        String qrCodeDataUri = QrCodeGenerator.generateDataUri("https://acme-gmbh.de/doc/M-1", 300);
+        byte[] pdf = new PdfGenerator().generatePdf(new ThymeleafRenderer().renderDocument("template-a",
+                Map.of("recipientName", "Hans Müller", "qrCodeDataUri", qrCodeDataUri)), baseUri);
+
+        assertEquals(List.of(Stage.QR_CODE, Stage.TEMPLATE, Stage.PARSE, Stage.LAYOUT, Stage.OUTPUT),
+                stages.stream().map(StageEvent::stage).toList());
+        assertNull(stages.get(0).template(), "QR codes are not tied to a template");
+        stages.stream().skip(1).forEach(event -> {
+            assertEquals("template-a", event.template());
+            assertTrue(event.nanos() > 0, "Stage must take time: " + event);
+            assertTrue(event.allocatedBytes() > 0, "Stage must allocate: " + event);
+        });
+        assertEquals(List.of(new DocumentEvent("template-a", 2, pdf.length)), documents);
+    }
+
+    @Test
+    void htmlAndPrintRun_reportStagesTaggedWithGivenTemplate() {
+        ThymeleafRenderer renderer = new ThymeleafRenderer();
+        String html = renderer.render("test-minimal", Map.of());
+        PdfGenerator generator = new PdfGenerator();
+        RenderMetrics.setListener(recorder);
+
+        generator.generatePdf(html, baseUri, OutputStream.nullOutputStream(), "test-minimal");
+        generator.generatePrintRun(List.of(html, html).iterator(), baseUri, OutputStream.nullOutputStream(), "test-minimal");
+
+        assertFalse(stages.isEmpty());
+        stages.forEach(event -> assertEquals("test-minimal", event.template(), "Untagged stage: " + event));
+        assertEquals(2, documents.size());
+        documents.forEach(event -> assertEquals("test-minimal", event.template(), "Untagged document: " + event));
+        assertEquals(2, documents.get(1).pages(), "The run must report both documents");
+    }
+
+    @Test
+    void printRun_reportsEachStageOncePerDocument() {
+        String html = new ThymeleafRenderer().render("test-minimal", Map.of());
+        RenderMetrics.setListener(recorder);
+
+        new PdfGenerator().generatePrintRun(List.of(html, html, html).iterator(), baseUri,
+                OutputStream.nullOutputStream(), "test-minimal");
+
+        for (Stage stage : List.of(Stage.PARSE, Stage.LAYOUT, Stage.OUTPUT)) {
+            assertEquals(3, stages.stream().filter(event -> event.stage() == stage).count(), stage.name());
+        }
+        assertEquals(1, documents.size());
+    }
+
+    @Test
+    void virtualThread_reportsAllocationsAsUnknown() throws InterruptedException {
+        String html = new ThymeleafRenderer().render("test-minimal", Map.of());
+        RenderMetrics.setListener(recorder);
+
+        Thread.ofVirtual().start(() -> new PdfGenerator().generatePdf(html, baseUri)).join();
+
+        assertFalse(stages.isEmpty());
+        stages.forEach(event -> assertEquals(-1, event.allocatedBytes(), "Unknown, not zero: " + event));
+    }
+
+    @Test
+    void noListener_reportsNothing() {
+        RenderMetrics.setListener(recorder);
+        RenderMetrics.setListener(null);
+
+        new PdfGenerator().generatePdf(new ThymeleafRenderer().render("test-minimal", Map.of()), baseUri);
+
+        assertNull(RenderMetrics.start(), "Instrumentation must be skipped without a listener");
+        assertTrue(stages.isEmpty());
+        assertTrue(documents.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.print.pdf;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontRegistryTest {
+
+    private static final String HTML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE html>
+            <html xmlns="http://www.w3.org/1999/xhtml">
+            <head><meta charset="UTF-8"/><title>Test</title></head>
+            <body style="font-family: 'CustomSans', sans-serif;">
+                <p>Grüße aus Köln</p>
+            </body>
+            </html>
+            """;
+
+    @Test
+    void defaultRegistry_containsBundledFont() {
+        assertTrue(FontRegistry.defaultRegistry().contains("DejaVuSans"),
+                "Default registry must contain DejaVuSans");
+    }
+
+    @Test
+    void defaultRegistry_rejectsRegistration() {
+        FontRegistry registry = FontRegistry.defaultRegistry();
+
+        assertThrows(UnsupportedOperationException.class, () -> registry.register("Other", new byte[]{0}));
+        assertThrows(UnsupportedOperationException.class,
+                () -> registry.registerClasspathFont("Other", FontRegistry.DEFAULT_FONT_RESOURCE));
+        assertFalse(registry.contains("Other"));
+        assertTrue(FontRegistry.withDefaultFont().register("Other", new byte[]{0}).contains("Other"),
+                "A registry from withDefaultFont() stays open for registration");
+    }
+
+    @Test
+    void registerClasspathFont_missingResource_throws() {
+        FontRegistry registry = new FontRegistry();
+        assertThrows(RuntimeException.class, () -> registry.registerClasspathFont("Missing", "fonts/missing.ttf"));
+    }
+
+    @Test
+    void registerFontFile_memoryMappedFont_isEmbeddedInEveryPdf(@TempDir Path tempDir) throws IOException {
+        Path fontFile = tempDir.resolve("custom.ttf");
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("fonts/DejaVuSans.ttf")) {
+            Files.copy(is, fontFile);
+        }
+        FontRegistry registry = new FontRegistry().registerFontFile("CustomSans", fontFile);
+        PdfGenerator generator = new PdfGenerator(registry);
+
+        for (int i = 0; i < 2; i++) {
+            byte[] pdf = generator.generatePdf(HTML, null);
+            try (PDDocument document = Loader.loadPDF(pdf)) {
+                String text = new PDFTextStripper().getText(document);
+                assertTrue(text.contains("Grüße aus Köln"), "PDF text must contain umlauts, actual: " + text);
+                PDResources resources = document.getPage(0).getResources();
+                PDFont font = resources.getFont(resources.getFontNames().iterator().next());
+                assertTrue(font.getName().endsWith("DejaVuSans"),
+                        "Registered family must map to the DejaVuSans file, actual: " + font.getName());
+            }
+        }
+    }
+
+    @Test
+    void withoutHinting_embedsSmallerFont_withSameText() throws IOException {
+        FontRegistry hinted = new FontRegistry().registerClasspathFont("CustomSans", "fonts/DejaVuSans.ttf");
+        byte[] standard = new PdfGenerator(hinted).generatePdf(HTML, null);
+        byte[] unhinted = new PdfGenerator(hinted.withoutHinting()).generatePdf(HTML, null);
+
+        assertTrue(unhinted.length < standard.length * 0.8,
+                "Unhinted font must shrink the PDF, was " + unhinted.length + " vs " + standard.length);
+        try (PDDocument document = Loader.loadPDF(unhinted)) {
+            assertTrue(new PDFTextStripper().getText(document).contains("Grüße aus Köln"));
+            PDResources resources = document.getPage(0).getResources();
+            PDFont font = resources.getFont(resources.getFontNames().iterator().next());
+            assertTrue(font.getName().endsWith("DejaVuSans"), "Actual font: " + font.getName());
+            assertTrue(font.getWidth('G') > 0, "Embedded subset must keep its metrics");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.print.pdf;
+
+import com.example.print.cache.CacheStats;
+import com.example.print.qr.QrCodeGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageOptimizerTest {
+
+    private static final String PHOTO = dataUri(photo(2400, 1200, false), "png");
+
+    @Test
+    void generatePdf_largeImage_isDownsampledToTargetDpi() throws IOException {
+        String html = page("<img src=\"" + PHOTO + "\" style=\"width: 192px\"/>");
+        byte[] original = new PdfGenerator().generatePdf(html, null);
+        byte[] optimized = generator(new ImageOptimizer()).generatePdf(html, null);
+
+        PDImageXObject image = images(optimized).get(0);
+        assertEquals(600, image.getWidth(), "2in at 300dpi");
+        assertEquals(300, image.getHeight(), "Aspect ratio must be kept");
+        assertEquals(COSName.DCT_DECODE, image.getCOSObject().getCOSName(COSName.FILTER), "Opaque photo becomes JPEG");
+        assertEquals(2400, images(original).get(0).getWidth());
+        assertTrue(optimized.length < original.length / 2,
+                "Output must shrink, was " + original.length + " now " + optimized.length);
+    }
+
+    @Test
+    void generatePdf_turkishDefaultLocale_readsUpperCaseUnits() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            byte[] optimized = generator(new ImageOptimizer()).generatePdf(
+                    page("<img src=\"" + PHOTO + "\" style=\"width: 2IN\"/>"), null);
+
+            assertEquals(600, images(optimized).get(0).getWidth(), "2IN at 300dpi, not 2px");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void generatePdf_sameImageTwice_decodesOnce() throws IOException {
+        ImageOptimizer optimizer = new ImageOptimizer();
+        PdfGenerator generator = generator(optimizer);
+        String html = page("<img src=\"" + PHOTO + "\" width=\"100\"/><img src=\"" + PHOTO + "\" width=\"100\"/>");
+
+        generator.generatePdf(html, null);
+        byte[] pdf = generator.generatePdf(html, null);
+
+        CacheStats stats = optimizer.stats();
+        assertEquals(1, stats.misses());
+        assertEquals(3, stats.hits());
+        assertEquals(2, images(pdf).size());
+    }
+
+    @Test
+    void generatePdf_transparentImage_staysLosslessWithAlpha() throws IOException {
+        String html = page("<img src=\"" + dataUri(photo(800, 800, true), "png") + "\" style=\"width: 20mm\"/>");
+
+        PDImageXObject image = images(generator(new ImageOptimizer()).generatePdf(html, null)).get(0);
+
+        assertEquals(237, image.getWidth(), "20mm at 300dpi");
+        assertEquals(COSName.FLATE_DECODE, image.getCOSObject().getCOSName(COSName.FILTER));
+        assertTrue(image.getCOSObject().containsKey(COSName.SMASK), "Transparency must be kept");
+    }
+
+    @Test
+    void generatePdf_smallQrCode_isNotScaledUp() throws IOException {
+        String html = page("<img src=\"" + QrCodeGenerator.generateDataUri("https://example.com", 150)
+                + "\" style=\"width: 150px; height: 150px;\"/>");
+
+        PDImageXObject image = images(generator(new ImageOptimizer()).generatePdf(html, null)).get(0);
+
+        assertEquals(150, image.getWidth());
+    }
+
+    @Test
+    void generatePdf_qrCodeScaledDown_staysSharpPng() throws IOException {
+        String html = page("<img src=\"" + QrCodeGenerator.generateDataUri("https://example.com", 600)
+                + "\" style=\"width: 20mm; height: 20mm;\"/>");
+        byte[] pdf = generator(new ImageOptimizer()).generatePdf(html, null);
+
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            PDResources resources = document.getPage(0).getResources();
+            PDImageXObject image = (PDImageXObject) resources.getXObject(resources.getXObjectNames().iterator().next());
+            assertEquals(237, image.getWidth(), "20mm at 300dpi");
+            assertEquals(COSName.FLATE_DECODE, image.getCOSObject().getCOSName(COSName.FILTER), "Line art must not become JPEG");
+            assertEquals(1, image.getBitsPerComponent());
+            BufferedImage pixels = image.getImage();
+            int black = 0;
+            for (int y = 0; y < pixels.getHeight(); y++) {
+                for (int x = 0; x < pixels.getWidth(); x++) {
+                    int rgb = pixels.getRGB(x, y) & 0xFFFFFF;
+                    assertTrue(rgb == 0 || rgb == 0xFFFFFF, "Edges must not blur into grey at " + x + "," + y);
+                    black += rgb == 0 ? 1 : 0;
+                }
+            }
+            double share = (double) black / (pixels.getWidth() * pixels.getHeight());
+            assertTrue(share > 0.2 && share < 0.8, "QR code must keep its modules, black share was " + share);
+        }
+    }
+
+    @Test
+    void generatePdf_sameDocumentTwice_keepsCallersImageSource() throws Exception {
+        String xhtml = "<html xmlns=\"http://www.w3.org/1999/xhtml\">" + page("<img src=\"" + PHOTO + "\" width=\"100\"/>")
+                .substring("<html>".length());
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xhtml)));
+        PdfGenerator generator = generator(new ImageOptimizer());
+
+        generator.generatePdf(document, null);
+        String src = ((Element) document.getElementsByTagName("img").item(0)).getAttribute("src");
+        byte[] again = generator.generatePdf(document, null);
+
+        assertEquals(PHOTO, src, "The caller's DOM must not keep the per-render image URI");
+        assertEquals(1, images(again).size(), "A reused DOM must still render its image");
+    }
+
+    private static PdfGenerator generator(ImageOptimizer optimizer) {
+        return new PdfGenerator(FontRegistry.defaultRegistry(), ResourceCache.defaultCache(), optimizer);
+    }
+
+    private static String page(String body) {
+        return "<html><body>" + body + "</body></html>";
+    }
+
+    private static List<PDImageXObject> images(byte[] pdf) throws IOException {
+        List<PDImageXObject> images = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            PDResources resources = document.getPage(0).getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.getXObject(name) instanceof PDImageXObject image) {
+                    images.add(image);
+                }
+            }
+        }
+        return images;
+    }
+
+    private static BufferedImage photo(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(42);
+        for (int i = 0; i < 400; i++) {
+            graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), alpha ? random.nextInt(256) : 255));
+            graphics.fillOval(random.nextInt(width), random.nextInt(height), width / 8, height / 8);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static String dataUri(BufferedImage image, String format) {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ImageIO.write(image, format, os);
+            return "data:image/" + format + ";base64," + Base64.getEncoder().encodeToString(os.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
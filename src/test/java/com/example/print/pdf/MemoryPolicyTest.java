@@ -0,0 +1,75 @@
+package com.example.print.pdf;
+
+import com.example.print.template.ThymeleafRenderer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryPolicyTest {
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    @Test
+    void reserve_budgetUsedUp_spillsInsteadOfWaiting() {
+        MemoryPolicy policy = new MemoryPolicy(10, 25);
+
+        MemoryPolicy.Reservation first = policy.reserve();
+        MemoryPolicy.Reservation second = policy.reserve();
+        MemoryPolicy.Reservation third = policy.reserve();
+
+        assertEquals(20, policy.reservedBytes());
+        assertEquals(1, policy.spilledDocuments());
+        third.close();
+        first.close();
+        first.close();
+        assertEquals(10, policy.reservedBytes(), "Closing must return each share exactly once");
+        second.close();
+        assertEquals(0, policy.reservedBytes());
+    }
+
+    @Test
+    void generatePdf_scratchFilesOnly_matchesInMemoryOutput() throws IOException {
+        String html = new ThymeleafRenderer().render("template-b", Map.of());
+
+        byte[] inMemory = new PdfGenerator().generatePdf(html, baseUri);
+        byte[] scratch = generator(MemoryPolicy.scratchFilesOnly()).generatePdf(html, baseUri);
+
+        assertEquals(text(inMemory), text(scratch));
+    }
+
+    @Test
+    void generatePdf_concurrentRendersOverBudget_allSucceedAndReleaseBudget() throws Exception {
+        MemoryPolicy policy = new MemoryPolicy(1024 * 1024, 1024 * 1024);
+        PdfGenerator generator = generator(policy);
+        String html = new ThymeleafRenderer().render("template-b", Map.of());
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(4)) {
+            var futures = IntStream.range(0, 8).mapToObj(i -> workers.submit(() -> generator.generatePdf(html, baseUri))).toList();
+            for (Future<byte[]> future : futures) {
+                assertEquals("%PDF", new String(future.get(), 0, 4));
+            }
+        }
+
+        assertEquals(0, policy.reservedBytes());
+    }
+
+    private static PdfGenerator generator(MemoryPolicy policy) {
+        return new PdfGenerator(FontRegistry.defaultRegistry(), ResourceCache.defaultCache(), null, policy);
+    }
+
+    private static String text(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.print.pdf;
+
+import com.example.print.qr.QrCodeGenerator;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputOptimizerTest {
+
+    private static final String QR_CODE = QrCodeGenerator.generateDataUri("https://acme-gmbh.de/doc/A-2026-001", 200);
+
+    private static List<String> letters() {
+        return IntStream.range(0, 4).mapToObj(i -> """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE html>
+                <html xmlns="http://www.w3.org/1999/xhtml">
+                <head><meta charset="UTF-8"/><title>Test</title></head>
+                <body><p>Brief %d an Jürgen</p><img src="%s" style="width: 30mm;"/></body>
+                </html>
+                """.formatted(i, QR_CODE)).toList();
+    }
+
+    private static byte[] printRun(OutputOptimizer optimizer) {
+        PdfGenerator generator = new PdfGenerator(FontRegistry.defaultRegistry(), ResourceCache.defaultCache(), null,
+                MemoryPolicy.inMemory(), optimizer);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generator.generatePrintRun(letters().iterator(), null, os);
+        return os.toByteArray();
+    }
+
+    private static Set<COSBase> images(PDDocument document) {
+        Set<COSBase> images = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PDPage page : document.getPages()) {
+            COSDictionary xObjects = page.getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT);
+            xObjects.getValues().forEach(image -> images.add(image instanceof COSObject object ? object.getObject() : image));
+        }
+        return images;
+    }
+
+    @Test
+    void deduplicating_printRun_embedsRepeatedImageOnce() throws IOException {
+        OutputOptimizer optimizer = OutputOptimizer.deduplicating();
+        byte[] standard = printRun(OutputOptimizer.standard());
+        byte[] deduplicated = printRun(optimizer);
+
+        assertTrue(deduplicated.length < standard.length,
+                "Deduplicated run must be smaller, was " + deduplicated.length + " vs " + standard.length);
+        assertEquals(3, optimizer.deduplicatedStreams(), "Three of the four images must be dropped");
+        try (PDDocument document = Loader.loadPDF(deduplicated)) {
+            assertEquals(1, images(document).size(), "All letters must share one image");
+            String text = new PDFTextStripper().getText(document);
+            for (int i = 0; i < 4; i++) {
+                assertTrue(text.contains("Brief " + i + " an Jürgen"), "Print run must contain letter " + i);
+            }
+        }
+        try (PDDocument document = Loader.loadPDF(standard)) {
+            assertEquals(4, images(document).size(), "Standard output keeps one image per letter");
+        }
+    }
+
+    private static COSDictionary nested(int depth) {
+        COSDictionary dictionary = new COSDictionary();
+        for (int i = 0; i < depth; i++) {
+            COSDictionary outer = new COSDictionary();
+            outer.setItem(COSName.getPDFName("Nested"), dictionary);
+            dictionary = outer;
+        }
+        return dictionary;
+    }
+
+    private static void addForm(PDDocument document, COSDictionary nested) throws IOException {
+        COSStream form = document.getDocument().createCOSStream();
+        form.setItem(COSName.TYPE, COSName.XOBJECT);
+        form.setItem(COSName.SUBTYPE, COSName.FORM);
+        form.setItem(COSName.getPDFName("Nested"), nested);
+        try (OutputStream os = form.createOutputStream()) {
+            os.write("0 0 10 10 re f".getBytes(StandardCharsets.US_ASCII));
+        }
+        COSDictionary xObjects = new COSDictionary();
+        xObjects.setItem(COSName.getPDFName("Fm1"), form);
+        PDPage page = new PDPage();
+        page.setResources(new PDResources());
+        page.getResources().getCOSObject().setItem(COSName.XOBJECT, xObjects);
+        document.addPage(page);
+    }
+
+    @Test
+    void deduplicating_deeplyNestedDictionary_keepsStream() throws IOException {
+        OutputOptimizer optimizer = OutputOptimizer.deduplicating();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            addForm(document, nested(1));
+            addForm(document, nested(1));
+            COSDictionary deep = nested(40);
+            addForm(document, deep);
+            addForm(document, deep);
+            optimizer.save(document, os);
+        }
+
+        assertEquals(1, optimizer.deduplicatedStreams(), "Only the shallow form must be deduplicated");
+        try (PDDocument document = Loader.loadPDF(os.toByteArray())) {
+            assertEquals(3, images(document).size(), "Deeply nested forms must be kept as they are");
+        }
+    }
+
+    @Test
+    void withoutObjectStreams_writesClassicCrossReferenceTable() {
+        PdfGenerator generator = new PdfGenerator(FontRegistry.defaultRegistry(), ResourceCache.defaultCache(), null,
+                MemoryPolicy.inMemory(), new OutputOptimizer(false, false));
+
+        String pdf = new String(generator.generatePdf(letters().getFirst(), null), StandardCharsets.ISO_8859_1);
+        String standard = new String(new PdfGenerator().generatePdf(letters().getFirst(), null), StandardCharsets.ISO_8859_1);
+
+        assertTrue(pdf.contains("\nxref"), "Classic output must have an xref table");
+        assertFalse(pdf.contains("/ObjStm"), "Classic output must not use object streams");
+        assertTrue(standard.contains("/ObjStm") && standard.contains("/XRef"),
+                "Standard output must use object and cross-reference streams");
+    }
+}
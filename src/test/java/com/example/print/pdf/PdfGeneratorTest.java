@@ -1,14 +1,33 @@
 package com.example.print.pdf;
 
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +40,15 @@ class PdfGeneratorTest {
         Files.createDirectories(OUTPUT_DIR);
     }
 
+    private static final String MINIMAL_HTML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE html>
+            <html xmlns="http://www.w3.org/1999/xhtml">
+            <head><meta charset="UTF-8"/><title>Test</title></head>
+            <body><p>Grüße aus München</p></body>
+            </html>
+            """;
+
     @Test
     void generatePdf_hardcodedHtml_returnsValidPdf() {
         String html = """
@@ -65,4 +93,133 @@ class PdfGeneratorTest {
         String header = new String(pdf, 0, Math.min(5, pdf.length), StandardCharsets.US_ASCII);
         assertTrue(header.startsWith("%PDF"), "PDF must start with %PDF magic bytes");
     }
+
+    @Test
+    void generatePdf_toOutputStream_writesPdfWithoutClosingStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream target = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        new PdfGenerator().generatePdf(MINIMAL_HTML, null, target);
+
+        String header = new String(target.toByteArray(), 0, 5, StandardCharsets.US_ASCII);
+        assertTrue(header.startsWith("%PDF"), "PDF must start with %PDF magic bytes");
+        assertFalse(closed.get(), "Caller-supplied stream must not be closed");
+    }
+
+    @Test
+    void generatePdf_toPathAndChannel_matchByteArrayOutput() throws IOException {
+        PdfGenerator generator = new PdfGenerator();
+        Path pathTarget = OUTPUT_DIR.resolve("test-stream-path.pdf");
+        Path channelTarget = OUTPUT_DIR.resolve("test-stream-channel.pdf");
+
+        generator.generatePdf(MINIMAL_HTML, null, pathTarget);
+        try (FileChannel channel = FileChannel.open(channelTarget,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            generator.generatePdf(MINIMAL_HTML, null, channel);
+            assertTrue(channel.isOpen(), "Caller-supplied channel must not be closed");
+        }
+
+        byte[] expected = generator.generatePdf(MINIMAL_HTML, null);
+        assertEquals(expected.length, Files.size(pathTarget), "Path output must match byte[] output size");
+        assertEquals(expected.length, Files.size(channelTarget), "Channel output must match byte[] output size");
+    }
+
+    @Test
+    void generatePrintRun_toPathFailing_keepsPreviousFileAndLeavesNoPart() throws IOException {
+        Path directory = Files.createDirectories(OUTPUT_DIR.resolve("failed-print-run"));
+        Path target = Files.writeString(directory.resolve("run.pdf"), "previous run");
+        Iterator<String> failing = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (next++ == 2) {
+                    throw new IllegalStateException("source failed");
+                }
+                return MINIMAL_HTML;
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> new PdfGenerator().generatePrintRun(failing, null, target));
+
+        assertEquals("previous run", Files.readString(target));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(target), files.toList(), "The temporary file must be removed");
+        }
+    }
+
+    @Test
+    void generatePrintRun_manyDocuments_shareOneEmbeddedFont() throws IOException {
+        List<String> letters = IntStream.range(0, 5)
+                .mapToObj(i -> MINIMAL_HTML
+                        .replace("<body>", "<body style=\"font-family: 'DejaVuSans', sans-serif;\">")
+                        .replace("Grüße aus München", "Brief " + i + " an Jürgen"))
+                .toList();
+        Path outputFile = OUTPUT_DIR.resolve("test-print-run.pdf");
+
+        new PdfGenerator().generatePrintRun(letters.iterator(), null, outputFile);
+
+        try (PDDocument document = Loader.loadPDF(outputFile.toFile())) {
+            assertEquals(5, document.getNumberOfPages(), "Each letter must contribute one page");
+            String text = new PDFTextStripper().getText(document);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(text.contains("Brief " + i + " an Jürgen"), "Print run must contain letter " + i);
+            }
+
+            Set<COSBase> fontObjects = new HashSet<>();
+            for (PDPage page : document.getPages()) {
+                COSDictionary fonts = page.getResources().getCOSObject().getCOSDictionary(COSName.FONT);
+                fonts.getValues().forEach(font -> fontObjects.add(((COSObject) font).getObject()));
+            }
+            assertEquals(1, fontObjects.size(), "All letters must share one embedded font");
+            PDResources resources = document.getPage(4).getResources();
+            String fontName = resources.getFont(resources.getFontNames().iterator().next()).getName();
+            assertTrue(fontName.endsWith("DejaVuSans"), "Shared font must be DejaVuSans, actual: " + fontName);
+        }
+    }
+
+    @Test
+    void generatePrintRun_unusedFontFamily_isNeverLoaded() throws IOException {
+        FontRegistry registry = FontRegistry.withDefaultFont().register("BrokenSans", new byte[]{0, 1, 0, 0});
+        List<String> letters = IntStream.range(0, 3)
+                .mapToObj(i -> MINIMAL_HTML
+                        .replace("<body>", "<body style=\"font-family: 'DejaVuSans', sans-serif;\">")
+                        .replace("Grüße aus München", "Brief " + i))
+                .toList();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        new PdfGenerator(registry).generatePrintRun(letters.iterator(), null, os);
+
+        try (PDDocument document = Loader.loadPDF(os.toByteArray())) {
+            assertEquals(3, document.getNumberOfPages());
+            assertTrue(new PDFTextStripper().getText(document).contains("Brief 2"));
+        }
+    }
+
+    @Test
+    void generatePdf_invalidQrCodeObjects_renderRestOfDocument() throws IOException {
+        String html = MINIMAL_HTML.replace("</body>", """
+                <object type="application/x-qrcode" data="https://example.com" data-error-correction="X" style="width: 80px; height: 80px;"></object>
+                <object type="application/x-qrcode" data="" style="width: 80px; height: 80px;"></object>
+                <object type="application/x-qrcode" data="%s" style="width: 80px; height: 80px;"></object>
+                </body>""".formatted("x".repeat(8000)));
+
+        byte[] pdf = new PdfGenerator().generatePdf(html, null);
+
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            assertTrue(new PDFTextStripper().getText(document).contains("Grüße aus München"));
+            COSDictionary xObjects = document.getPage(0).getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT);
+            assertEquals(1, xObjects.size(), "Only the QR code with an unknown level (drawn as L) may be drawn");
+        }
+    }
 }
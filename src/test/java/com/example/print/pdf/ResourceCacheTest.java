@@ -0,0 +1,100 @@
+package com.example.print.pdf;
+
+import com.example.print.cache.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void get_overByteBudget_evictsLeastRecentlyUsed() throws IOException {
+        ResourceCache cache = new ResourceCache(10);
+        String a = write("a.css", "aaaa");
+        String b = write("b.css", "bbbb");
+        String c = write("c.css", "cccc");
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+
+        assertEquals(new CacheStats(1, 3, 1, 8), cache.stats());
+        cache.get(a);
+        assertEquals(2, cache.stats().hits(), "Recently used resource must survive eviction");
+    }
+
+    @Test
+    void invalidate_rereadsChangedResource() throws IOException {
+        ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAX_BYTES);
+        String css = write("style.css", "p { color: red; }");
+        cache.get(css);
+
+        write("style.css", "p { color: blue; }");
+        String stale = new String(cache.get(css));
+        cache.invalidate(css);
+        String fresh = new String(cache.get(css));
+
+        assertEquals("p { color: red; }", stale);
+        assertEquals("p { color: blue; }", fresh);
+    }
+
+    @Test
+    void invalidate_duringLoad_doesNotCacheStaleBytes() throws IOException {
+        String css = write("style.css", "p { color: red; }");
+        ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAX_BYTES) {
+            @Override
+            byte[] read(String uri) throws IOException, URISyntaxException {
+                byte[] stale = super.read(uri);
+                Files.writeString(dir.resolve("style.css"), "p { color: blue; }");
+                invalidate(uri);
+                return stale;
+            }
+        };
+
+        cache.get(css);
+
+        assertEquals(0, cache.stats().size(), "Bytes read before the invalidation must not be cached");
+    }
+
+    @Test
+    void getUrl_missingResource_isNotCached() {
+        ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAX_BYTES);
+        String missing = dir.resolve("missing.css").toUri().toString();
+
+        assertNull(cache.getUrl(missing).getStream());
+        assertNull(cache.getUrl(missing).getStream());
+        assertEquals(new CacheStats(0, 2, 0, 0), cache.stats());
+    }
+
+    @Test
+    void generatePdf_readsLinkedStylesheetOnce() throws IOException {
+        ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAX_BYTES);
+        PdfGenerator generator = new PdfGenerator(FontRegistry.defaultRegistry(), cache);
+        write("style.css", "p { font-family: 'DejaVuSans'; }");
+        String html = "<html><head><link rel=\"stylesheet\" href=\"style.css\"/></head><body><p>Hallo</p></body></html>";
+        String baseUri = dir.toUri().toString();
+
+        generator.generatePdf(html, baseUri);
+        generator.generatePdf(html, baseUri);
+        generator.generatePdf(html, baseUri);
+
+        assertEquals(1, cache.stats().misses(), "Stylesheet must be read from disk only once");
+        assertEquals(2, cache.stats().hits());
+    }
+
+    private String write(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content);
+        return file.toUri().toString();
+    }
+}
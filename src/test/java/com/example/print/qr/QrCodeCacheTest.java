@@ -0,0 +1,43 @@
+package com.example.print.qr;
+
+import com.example.print.cache.CacheStats;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrCodeCacheTest {
+
+    @Test
+    void get_overCapacity_evictsLeastRecentlyUsed() {
+        QrCodeCache cache = new QrCodeCache(2);
+        AtomicInteger computations = new AtomicInteger();
+
+        cache.get("a", 300, ErrorCorrectionLevel.L, () -> "uri-a-" + computations.incrementAndGet());
+        cache.get("b", 300, ErrorCorrectionLevel.L, () -> "uri-b-" + computations.incrementAndGet());
+        cache.get("a", 300, ErrorCorrectionLevel.L, () -> "uri-a-" + computations.incrementAndGet());
+        cache.get("c", 300, ErrorCorrectionLevel.L, () -> "uri-c-" + computations.incrementAndGet());
+
+        assertEquals("uri-a-1", cache.get("a", 300, ErrorCorrectionLevel.L, () -> "recomputed"),
+                "Recently used entry must survive eviction");
+        assertEquals("recomputed", cache.get("b", 300, ErrorCorrectionLevel.L, () -> "recomputed"),
+                "Least recently used entry must be evicted");
+        assertEquals(new CacheStats(2, 4, 2, 2), cache.stats());
+    }
+
+    @Test
+    void get_keyIncludesSizeAndErrorCorrectionLevel() {
+        QrCodeCache cache = new QrCodeCache(10);
+
+        cache.get("a", 300, ErrorCorrectionLevel.L, () -> "small");
+        String otherSize = cache.get("a", 600, ErrorCorrectionLevel.L, () -> "large");
+        String otherLevel = cache.get("a", 300, ErrorCorrectionLevel.H, () -> "robust");
+
+        assertEquals("large", otherSize);
+        assertEquals("robust", otherLevel);
+        assertEquals(0, cache.stats().hits());
+        assertEquals(0.0, cache.stats().hitRate());
+    }
+}
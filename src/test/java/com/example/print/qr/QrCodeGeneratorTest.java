@@ -1,7 +1,16 @@
 package com.example.print.qr;
 
+import com.example.print.cache.CacheStats;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,4 +38,33 @@ class QrCodeGeneratorTest {
         System.arraycopy(decoded, 0, header, 0, 8);
         assertArrayEquals(pngSignature, header, "Decoded bytes must have PNG signature");
     }
+
+    @Test
+    void generateDataUri_pngDecodesToOriginalText() throws Exception {
+        String text = "https://example.com/doc/decode-" + System.nanoTime();
+        String result = QrCodeGenerator.generateDataUri(text, 300, ErrorCorrectionLevel.M);
+        byte[] png = Base64.getDecoder().decode(result.substring("data:image/png;base64,".length()));
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(300, image.getWidth(), "PNG width must match requested size");
+        assertEquals(300, image.getHeight(), "PNG height must match requested size");
+
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        assertEquals(text, new QRCodeReader().decode(bitmap).getText(), "QR code must decode to the original text");
+    }
+
+    @Test
+    void generateDataUri_repeatedText_isServedFromCache() {
+        String text = "https://example.com/doc/cache-" + System.nanoTime();
+        CacheStats before = QrCodeGenerator.cacheStats();
+
+        String first = QrCodeGenerator.generateDataUri(text, 300);
+        String second = QrCodeGenerator.generateDataUri(text, 300);
+        QrCodeGenerator.generateDataUri(text, 300, ErrorCorrectionLevel.H);
+
+        CacheStats after = QrCodeGenerator.cacheStats();
+        assertSame(first, second, "Repeated request must return the cached data URI");
+        assertTrue(after.hits() - before.hits() >= 1, "Second request must be a cache hit");
+        assertTrue(after.misses() - before.misses() >= 2, "First request and other EC level must be misses");
+    }
 }
@@ -0,0 +1,123 @@
+package com.example.print.report;
+
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingReportGeneratorTest {
+
+    private static final Path OUTPUT_DIR = Paths.get("target/test-output");
+
+    public record LineItem(String description, String amount) {
+    }
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.createDirectories(OUTPUT_DIR);
+    }
+
+    @Test
+    void generate_manyRows_paginatesWithRepeatedHeaderAndContinuousPageNumbers() throws IOException {
+        Path outputFile = OUTPUT_DIR.resolve("streaming-report.pdf");
+        StreamingReportGenerator generator = new StreamingReportGenerator(new ThymeleafRenderer(), new PdfGenerator(), baseUri, 200);
+
+        generator.generate("test-report", Map.of("title", "Kontoauszug", "customerName", "Hans Müller"),
+                lineItems(1000).iterator(), outputFile);
+
+        try (PDDocument document = Loader.loadPDF(outputFile.toFile())) {
+            int pages = document.getNumberOfPages();
+            assertTrue(pages >= 5, "1000 rows must need several pages, actual: " + pages);
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= pages; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(document);
+                assertTrue(text.contains("Beschreibung"), "Table header must repeat on page " + page);
+                assertTrue(text.contains("Seite " + page), "Page numbers must continue across chunks, page " + page);
+            }
+            stripper.setStartPage(1);
+            stripper.setEndPage(pages);
+            String text = stripper.getText(document);
+            assertEquals(1, text.split("Hans Müller", -1).length - 1, "Report header only in first chunk");
+            assertTrue(text.contains("Position 1000 – Gebühr"), "Last row must be present");
+            assertTrue(text.contains("Ende der Aufstellung, 1000 Positionen"), "Footer must count all rows");
+        }
+    }
+
+    @Test
+    void generate_pullsRowsOneChunkAtATime() {
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger rendered = new AtomicInteger();
+        List<Integer> rowsAheadOfRenderer = new ArrayList<>();
+        Iterator<LineItem> items = lineItems(50).iterator();
+        Iterator<LineItem> counting = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public LineItem next() {
+                pulled.incrementAndGet();
+                return items.next();
+            }
+        };
+        ThymeleafRenderer renderer = new ThymeleafRenderer() {
+            @Override
+            public Document renderDocument(String templateName, Map<String, Object> variables) {
+                rendered.addAndGet(((List<?>) variables.get("rows")).size());
+                rowsAheadOfRenderer.add(pulled.get() - rendered.get());
+                return super.renderDocument(templateName, variables);
+            }
+        };
+
+        new StreamingReportGenerator(renderer, new PdfGenerator(), baseUri, 10)
+                .generate("test-report", Map.of("title", "Test"), counting, OutputStream.nullOutputStream());
+
+        assertEquals(50, rendered.get());
+        assertEquals(List.of(0, 0, 0, 0, 0), rowsAheadOfRenderer, "Rows must not be pulled before their chunk is rendered");
+    }
+
+    @Test
+    void generate_noRows_rendersHeaderAndFooter() throws IOException {
+        Path outputFile = OUTPUT_DIR.resolve("streaming-report-empty.pdf");
+
+        new StreamingReportGenerator(new ThymeleafRenderer(), new PdfGenerator(), baseUri)
+                .generate("test-report", Map.of("title", "Kontoauszug", "customerName", "Hans Müller"),
+                        IntStream.empty().iterator(), outputFile);
+
+        try (PDDocument document = Loader.loadPDF(outputFile.toFile())) {
+            String text = new PDFTextStripper().getText(document);
+            assertEquals(1, document.getNumberOfPages());
+            assertTrue(text.contains("Hans Müller"));
+            assertTrue(text.contains("Ende der Aufstellung, 0 Positionen"), "actual: " + text);
+        }
+    }
+
+    private static Stream<LineItem> lineItems(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new LineItem("Position " + i + " – Gebühr", String.format("%d,%02d EUR", i, i % 100)));
+    }
+}
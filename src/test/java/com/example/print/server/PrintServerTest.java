@@ -0,0 +1,158 @@
+package com.example.print.server;
+
+import com.example.print.PrintPipeline;
+import com.example.print.cache.DocumentCache;
+import com.example.print.pdf.PdfGenerator;
+import com.example.print.template.ThymeleafRenderer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrintServerTest {
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private PrintServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void render_jsonModel_streamsPdf() throws Exception {
+        server = start(new PdfGenerator(), 2, 2);
+
+        HttpResponse<byte[]> response = post("/render/template-b", "{\"productName\": \"Schraube M6 \\u00d7 40\", \"showSpecialOffer\": true, \"specialOfferText\": \"Nur heute\"}");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/pdf", response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElseThrow(), "PDF must be streamed, not buffered");
+        try (PDDocument document = Loader.loadPDF(response.body())) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Schraube M6 × 40"));
+            assertTrue(text.contains("Nur heute"));
+        }
+    }
+
+    @Test
+    void render_invalidRequests_answerWithClientErrors() throws Exception {
+        server = start(new PdfGenerator(), 1, 0);
+
+        assertEquals(404, post("/render/does-not-exist", "{}").statusCode());
+        assertEquals(404, post("/render/..%2Fcss%2Ftemplate-a", "{}").statusCode());
+        assertEquals(400, post("/render/template-b", "{\"productName\": ").statusCode());
+        assertEquals(400, post("/render/template-b", "[1, 2]").statusCode());
+        HttpResponse<byte[]> get = client.send(HttpRequest.newBuilder(uri("/render/template-b")).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(405, get.statusCode());
+        String metrics = get("/metrics");
+        assertTrue(metrics.contains("print_requests_total{template=\"\",status=\"404\"} 2"), metrics);
+        assertTrue(metrics.contains("print_requests_total{template=\"template-b\",status=\"400\"} 2"), metrics);
+        assertTrue(metrics.contains("print_requests_total{template=\"\",status=\"405\"} 1"), metrics);
+        assertEquals(200, post("/render/template-b", "{}").statusCode(), "A 400 must give its render slot back");
+    }
+
+    @Test
+    void render_queueFull_rejectsWith503() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PdfGenerator blocking = new PdfGenerator() {
+            @Override
+            public void generatePdf(Document document, String baseUri, OutputStream os) {
+                rendering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.generatePdf(document, baseUri, os);
+            }
+        };
+        server = start(blocking, 1, 0);
+
+        CompletableFuture<HttpResponse<byte[]>> first = client.sendAsync(request("/render/template-b", "{}"),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertTrue(rendering.await(30, TimeUnit.SECONDS));
+        HttpResponse<byte[]> second = post("/render/template-b", "{\"productName\": ");
+        release.countDown();
+
+        assertEquals(503, second.statusCode(), "A rejected request must not be parsed first");
+        assertEquals("1", second.headers().firstValue("Retry-After").orElseThrow());
+        assertEquals(200, first.get(30, TimeUnit.SECONDS).statusCode());
+        assertTrue(get("/metrics").contains("print_requests_rejected_total 1"));
+    }
+
+    @Test
+    void healthAndMetrics_reportState() throws Exception {
+        server = start(new PdfGenerator(), 2, 2);
+        post("/render/template-b", "{}");
+
+        assertEquals("{\"status\":\"UP\"}", get("/health"));
+        String metrics = get("/metrics");
+        assertTrue(metrics.contains("print_requests_total{template=\"template-b\",status=\"200\"} 1"), metrics);
+        assertTrue(metrics.contains("print_request_duration_seconds_count{template=\"template-b\"} 1"), metrics);
+        assertTrue(metrics.contains("print_stage_duration_seconds_count{stage=\"layout\"} 1"), metrics);
+        assertTrue(metrics.contains("print_documents_total 1"), metrics);
+        assertTrue(metrics.contains("# TYPE print_requests_in_flight gauge"), metrics);
+    }
+
+    @Test
+    void render_pipelineWithDocumentCache_servesRepeatedRequestFromIt() throws Exception {
+        DocumentCache documents = new DocumentCache(16L * 1024 * 1024, null);
+        server = start(new PdfGenerator(), 2, 2, documents);
+
+        byte[] first = post("/render/template-b", "{\"productName\": \"Schraube M6\"}").body();
+        HttpResponse<byte[]> second = post("/render/template-b", "{\"productName\": \"Schraube M6\"}");
+
+        assertEquals(200, second.statusCode());
+        assertArrayEquals(first, second.body());
+        assertEquals(1, documents.stats().hits(), "The server must render through the pipeline's document cache");
+    }
+
+    private PrintServer start(PdfGenerator pdfGenerator, int maxConcurrent, int maxQueued) {
+        return start(pdfGenerator, maxConcurrent, maxQueued, null);
+    }
+
+    private PrintServer start(PdfGenerator pdfGenerator, int maxConcurrent, int maxQueued, DocumentCache documents) {
+        PrintPipeline pipeline = new PrintPipeline(new ThymeleafRenderer(), pdfGenerator, baseUri, documents);
+        return new PrintServer(pipeline, new InetSocketAddress("localhost", 0), maxConcurrent, maxQueued).start();
+    }
+
+    private HttpResponse<byte[]> post(String path, String json) throws IOException, InterruptedException {
+        return client.send(request(path, json), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpRequest request(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.port() + path);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.print.template;
+
+import com.example.print.cache.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FragmentCacheTest {
+
+    private final ThymeleafRenderer renderer = new ThymeleafRenderer();
+
+    @Test
+    void render_reusesFragmentsPerVariableValues() {
+        String first = renderer.render("test-fragment-cache", Map.of("recipientName", "Hans", "senderName", "Anna"));
+        String second = renderer.render("test-fragment-cache", Map.of("recipientName", "Hans", "senderName", "Anna"));
+        String third = renderer.render("test-fragment-cache", Map.of("recipientName", "Hans", "senderName", "Otto"));
+
+        assertEquals(first, second);
+        assertTrue(third.contains("<p>Otto</p>"), "Changed declared variable must re-render: " + third);
+        assertFalse(second.contains("print:cache") || second.contains("th:fragment"), second);
+        CacheStats stats = renderer.fragmentCacheStats();
+        assertEquals(3, stats.hits(), "letterhead twice, sender once");
+        assertEquals(3, stats.misses());
+        assertTrue(stats.size() > 0, "Cached markup must be accounted");
+    }
+
+    @Test
+    void render_undeclaredVariableReadByFragment_isPartOfKey() {
+        renderer.render("test-fragment-cache", Map.of("recipientName", "Hans", "senderName", "Anna"));
+
+        String html = renderer.render("test-fragment-cache", Map.of("recipientName", "Eva", "senderName", "Anna"));
+
+        assertFalse(html.contains("Hans"), "Fragment must not keep the first caller's value: " + html);
+        assertTrue(html.contains("<div class=\"sender\">\n        <p>Anna</p>\n        <p>Eva</p>"), html);
+    }
+
+    @Test
+    void render_fragmentLookingUpVariablesByName_isNotCached() {
+        String first = renderer.render("test-fragment-cache", Map.of("recipientName", "Hans"));
+        String second = renderer.render("test-fragment-cache", Map.of("recipientName", "Eva"));
+
+        assertTrue(first.contains("<p>Hans</p>\n    </div>\n</body>"), first);
+        assertTrue(second.contains("<p>Eva</p>\n    </div>\n</body>"), second);
+        CacheStats stats = renderer.fragmentCacheStats();
+        assertEquals(4, stats.hits() + stats.misses(), "Only letterhead and sender may use the cache");
+    }
+
+    @Test
+    void render_otherLocale_isNotServedFromCache() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            renderer.render("test-fragment-cache", Map.of("senderName", "Anna"));
+            Locale.setDefault(Locale.US);
+            renderer.render("test-fragment-cache", Map.of("senderName", "Anna"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+
+        assertEquals(0, renderer.fragmentCacheStats().hits(), "Fragments must be cached per locale");
+    }
+
+    @Test
+    void render_mutableModelObject_isNotCached() {
+        StringBuilder senderName = new StringBuilder("Anna");
+        renderer.render("test-fragment-cache", Map.of("senderName", senderName));
+
+        senderName.replace(0, senderName.length(), "Otto");
+        String html = renderer.render("test-fragment-cache", Map.of("senderName", senderName));
+
+        assertTrue(html.contains("<p>Otto</p>"), "Mutated value must be rendered: " + html);
+        assertEquals(1, renderer.fragmentCacheStats().hits(), "Only the letterhead may hit");
+    }
+
+    @Test
+    void render_listMutatedAfterCaching_rendersNewContent() {
+        List<String> senderName = new ArrayList<>(List.of("Anna"));
+        renderer.render("test-fragment-cache", Map.of("senderName", senderName));
+
+        senderName.set(0, "Otto");
+        String html = renderer.render("test-fragment-cache", Map.of("senderName", senderName));
+
+        assertTrue(html.contains("<p>[Otto]</p>"), "Cached fragment must not match the mutated list: " + html);
+        assertEquals(1, renderer.fragmentCacheStats().hits(), "Only the letterhead may hit");
+    }
+
+    @Test
+    void render_cachedValuesAreNotEvaluatedAgain() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("recipientName", "Hans");
+        model.put("senderName", "[[${recipientName}]] & Co");
+
+        String html = renderer.render("test-fragment-cache", model);
+        String cached = renderer.render("test-fragment-cache", model);
+
+        assertEquals(2, renderer.fragmentCacheStats().hits());
+        assertTrue(html.contains("<p>[[${recipientName}]] &amp; Co</p>"), html);
+        assertTrue(cached.contains("<p>[[${recipientName}]] &amp; Co</p>"), cached);
+    }
+
+    @Test
+    void renderDocument_insertsCachedFragmentAsElements() {
+        renderer.render("test-fragment-cache", Map.of("senderName", "Anna"));
+
+        var document = renderer.renderDocument("test-fragment-cache", Map.of("senderName", "Anna"));
+
+        assertEquals(2, renderer.fragmentCacheStats().hits(), "letterhead and sender must both hit");
+        assertEquals("Anna", document.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "p").item(2).getTextContent());
+    }
+
+    @Test
+    void render_cachedTemplateMatchesUncached() {
+        Map<String, Object> model = Map.of("title", "Preisliste", "contactPerson", "Thomas Müller",
+                "showSpecialOffer", true, "specialOfferText", "15% Rabatt", "footerText", "Alle Preise netto");
+
+        String uncached = renderer.render("template-b", model);
+        renderer.render("template-b-cached", model);
+        String cached = renderer.render("template-b-cached", model);
+
+        assertEquals(2, renderer.fragmentCacheStats().hits(), "contact and footer must hit");
+        assertEquals(uncached, cached.replace(" xmlns:print=\"urn:com.example.print\"", ""));
+    }
+
+    @Test
+    void clearTemplateCache_dropsFragments() {
+        renderer.render("test-fragment-cache", Map.of("senderName", "Anna"));
+
+        renderer.clearTemplateCache();
+
+        assertEquals(0, renderer.fragmentCacheStats().size());
+    }
+}
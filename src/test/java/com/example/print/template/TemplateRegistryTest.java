@@ -0,0 +1,66 @@
+package com.example.print.template;
+
+import com.example.print.cache.CacheStats;
+import com.example.print.pdf.PdfGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateRegistryTest {
+
+    private final String baseUri = getClass().getClassLoader().getResource("").toExternalForm();
+
+    @Test
+    void warmUp_parsesEveryTemplateBeforeFirstRequest() {
+        ThymeleafRenderer renderer = new ThymeleafRenderer();
+        TemplateRegistry registry = new TemplateRegistry(renderer, new PdfGenerator(), baseUri)
+                .register("template-a")
+                .register("template-b", Map.of("title", "Produktinformation", "showSpecialOffer", true));
+
+        registry.warmUp();
+        CacheStats afterWarmUp = renderer.templateCacheStats();
+        renderer.render("template-a", Map.of("recipientName", "Hans Müller"));
+        renderer.render("template-b", Map.of("title", "Preisliste"));
+        CacheStats afterRequests = renderer.templateCacheStats();
+
+        assertEquals(List.of("template-a", "template-b"), List.copyOf(registry.templates()));
+        assertEquals(2, afterWarmUp.size(), "Both templates must be cached after warm-up");
+        assertEquals(afterWarmUp.misses(), afterRequests.misses(), "Requests after warm-up must not parse templates");
+        assertEquals(afterWarmUp.hits() + 2, afterRequests.hits(), "Requests after warm-up must hit the template cache");
+    }
+
+    @Test
+    void warmUp_unknownTemplate_namesTemplateInError() {
+        TemplateRegistry registry = new TemplateRegistry(new ThymeleafRenderer(), new PdfGenerator(), baseUri)
+                .register("does-not-exist");
+
+        RuntimeException e = assertThrows(RuntimeException.class, registry::warmUp);
+        assertTrue(e.getMessage().contains("does-not-exist"), "Error must name the template, actual: " + e.getMessage());
+    }
+
+    @Test
+    void clearTemplateCache_forcesReparse() {
+        ThymeleafRenderer renderer = new ThymeleafRenderer();
+        renderer.render("test-minimal", Map.of());
+
+        renderer.clearTemplateCache();
+        renderer.render("test-minimal", Map.of());
+
+        assertEquals(2, renderer.templateCacheStats().misses(), "Cleared template must be parsed again");
+        assertEquals(0, renderer.templateCacheStats().evictions(), "Clearing the cache is not an eviction");
+    }
+
+    @Test
+    void templateCacheStats_countsTemplatesPushedOutBySizeLimit() {
+        ThymeleafRenderer renderer = new ThymeleafRenderer(1);
+        renderer.render("test-minimal", Map.of());
+        renderer.render("test-thymeleaf", Map.of("title", "t", "heading", "h", "name", "n", "city", "c", "message", "m"));
+        renderer.clearTemplateCache();
+        renderer.render("test-minimal", Map.of());
+
+        assertEquals(1, renderer.templateCacheStats().evictions(), "Only the size limit evicts");
+    }
+}
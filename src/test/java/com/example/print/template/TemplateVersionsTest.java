@@ -0,0 +1,92 @@
+package com.example.print.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateVersionsTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Test
+    void version_changesWhenLinkedStylesheetChanges() throws IOException {
+        Path css = Files.createDirectories(baseDir.resolve("css")).resolve("test-thymeleaf.css");
+        Files.writeString(css, "p { color: black; }");
+        TemplateVersions versions = new TemplateVersions(baseDir.toUri().toString());
+
+        String before = versions.version("test-thymeleaf");
+        String unchanged = versions.version("test-thymeleaf");
+        Files.writeString(css, "p { color: red; }");
+        Files.setLastModifiedTime(css, FileTime.from(Instant.now().plusSeconds(5)));
+        String after = versions.version("test-thymeleaf");
+
+        assertEquals(before, unchanged);
+        assertNotEquals(before, after, "Edited stylesheet must change the template version");
+    }
+
+    @Test
+    void version_changedStylesheet_notifiesListenerWithItsUri() throws IOException {
+        Path css = Files.createDirectories(baseDir.resolve("css")).resolve("test-thymeleaf.css");
+        Files.writeString(css, "p { color: black; }");
+        List<String> changes = new ArrayList<>();
+        TemplateVersions versions = new TemplateVersions(baseDir.toUri().toString(),
+                (templateName, stylesheets) -> changes.add(templateName + " " + stylesheets));
+
+        versions.version("test-thymeleaf");
+        versions.version("test-thymeleaf");
+        Files.writeString(css, "p { color: red; }");
+        Files.setLastModifiedTime(css, FileTime.from(Instant.now().plusSeconds(5)));
+        versions.version("test-thymeleaf");
+
+        assertEquals(List.of("test-thymeleaf [" + baseDir.toUri().resolve("css/test-thymeleaf.css") + "]"), changes);
+    }
+
+    @Test
+    void version_jarBaseUri_hashesStylesheetInsideJar() throws IOException {
+        TemplateVersions black = new TemplateVersions(jarWithStylesheet("black.jar", "p { color: black; }"));
+        TemplateVersions red = new TemplateVersions(jarWithStylesheet("red.jar", "p { color: red; }"));
+
+        assertNotEquals(black.version("test-thymeleaf"), red.version("test-thymeleaf"),
+                "Stylesheet inside the jar must be part of the template version");
+    }
+
+    private String jarWithStylesheet(String name, String css) throws IOException {
+        Path jar = baseDir.resolve(name);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("css/test-thymeleaf.css"));
+            out.write(css.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return "jar:" + jar.toUri() + "!/";
+    }
+
+    @Test
+    void version_differsPerTemplate() {
+        TemplateVersions versions = new TemplateVersions(getClass().getClassLoader().getResource("").toExternalForm());
+
+        assertNotEquals(versions.version("template-a"), versions.version("template-b"));
+    }
+
+    @Test
+    void version_withoutBaseUri_hashesTemplateAlone() {
+        TemplateVersions versions = new TemplateVersions(null);
+
+        String version = versions.version("template-a");
+
+        assertEquals(version, versions.version("template-a"));
+        assertNotEquals(version, versions.version("template-b"));
+    }
+}
@@ -1,9 +1,22 @@
 package com.example.print.template;
 
+import com.example.print.cache.CacheStats;
+import com.example.print.json.Json;
 import org.junit.jupiter.api.Test;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,4 +76,102 @@ class ThymeleafRendererTest {
         assertTrue(html.contains("qr-section"), "QR section must be present when qrCodeDataUri is set");
         assertTrue(html.contains("data:image/png;base64,ABC"), "Img src must contain the data URI");
     }
+
+    @Test
+    void renderDocument_buildsNamespacedDomWithUnescapedText() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("name", "Müller & Söhne <GmbH>");
+        model.put("street", "Street");
+        model.put("city", "City");
+        model.put("heading", "Heading");
+        model.put("message", "Message");
+        model.put("title", "Title");
+        model.put("qrCodeDataUri", "data:image/png;base64,ABC");
+
+        Document document = renderer.renderDocument("test-thymeleaf", model);
+
+        Element root = document.getDocumentElement();
+        assertEquals("http://www.w3.org/1999/xhtml", root.getNamespaceURI());
+        assertEquals("html", root.getLocalName());
+        NodeList paragraphs = document.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "p");
+        assertEquals("Müller & Söhne <GmbH>", paragraphs.item(0).getTextContent());
+        Element img = (Element) document.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "img").item(0);
+        assertEquals("data:image/png;base64,ABC", img.getAttribute("src"));
+        assertFalse(img.hasAttribute("th:src"), "Thymeleaf attributes must be processed");
+    }
+
+    @Test
+    void renderDocument_doesNotAffectStringRendering() {
+        Map<String, Object> model = Map.of("name", "A & B", "title", "Title");
+
+        renderer.renderDocument("test-thymeleaf", model);
+        String html = renderer.render("test-thymeleaf", model);
+
+        assertTrue(html.contains("<p>A &amp; B</p>"), "String rendering must still escape text, actual: " + html);
+    }
+
+    @Test
+    void evictTemplate_dropsOnlyThatTemplate() {
+        renderer.render("test-thymeleaf", Map.of("name", "Test"));
+        renderer.render("test-minimal", Map.of());
+
+        renderer.evictTemplate("test-thymeleaf");
+        renderer.render("test-thymeleaf", Map.of("name", "Test"));
+        renderer.render("test-minimal", Map.of());
+
+        assertEquals(3, renderer.templateCacheStats().misses(), "Only the evicted template must be parsed again");
+        assertEquals(0, renderer.templateCacheStats().evictions(), "Evicted on purpose, not by the size limit");
+    }
+
+    @Test
+    void evictTemplate_whileRendering_isNotCountedAsEviction() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> renders = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                renders.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        renderer.render("test-minimal", Map.of());
+                    }
+                }));
+            }
+            for (int i = 0; i < 500; i++) {
+                renderer.evictTemplate("test-minimal");
+                renderer.clearTemplateCache();
+            }
+            for (Future<?> render : renders) {
+                render.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        CacheStats stats = renderer.templateCacheStats();
+        assertEquals(0, stats.evictions(), "Templates dropped on purpose must never count as evictions");
+        assertEquals(2000, stats.hits() + stats.misses(), "Every render must look the template up once");
+    }
+
+    @Test
+    void nativeImageMetadata_registersPostProcessorHandlers() throws Exception {
+        List<?> reflectConfig;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(
+                "META-INF/native-image/com.example/pdf-creation-thymeleaf/reflect-config.json")) {
+            reflectConfig = (List<?>) Json.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        for (IPostProcessor postProcessor : new DomOutputDialect().getPostProcessors()) {
+            Class<?> handler = postProcessor.getHandlerClass();
+            Map<?, ?> entry = reflectConfig.stream()
+                    .map(Map.class::cast)
+                    .filter(e -> handler.getName().equals(e.get("name")))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("Thymeleaf instantiates " + handler.getName()
+                            + " reflectively; register it in reflect-config.json"));
+            Object methods = entry.get("methods");
+            assertTrue(methods instanceof List<?> list && list.stream().map(Map.class::cast).anyMatch(m ->
+                            "<init>".equals(m.get("name")) && List.of().equals(m.get("parameterTypes"))),
+                    "Register the no-argument constructor of " + handler.getName() + ", was: " + methods);
+            assertNotNull(handler.getConstructor());
+        }
+    }
 }